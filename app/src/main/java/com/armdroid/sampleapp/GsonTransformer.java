@@ -1,43 +1,31 @@
 package com.armdroid.sampleapp;
 
-import com.armdroid.smartpreferences.PreferenceTransformer;
+import com.armdroid.smartpreferences.BasePreferenceTransformer;
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 
-import java.lang.reflect.ParameterizedType;
-import java.lang.reflect.Type;
-import java.util.ArrayList;
 import java.util.List;
 
-public abstract class GsonTransformer<To> implements PreferenceTransformer<String, To> {
+public abstract class GsonTransformer<To> extends BasePreferenceTransformer<String, To> {
+
+    private static final Gson GSON = new Gson();
 
     @Override
     public To convertRead(String from) {
-        Type superClass = getClass().getGenericSuperclass();
-        Type genericType = ((ParameterizedType) superClass).getActualTypeArguments()[0];
-        return new Gson().fromJson(from, genericType);
+        return GSON.fromJson(from, getTypeParam1());
     }
 
     @Override
     public List<To> convertReadList(String from) {
-        Type superClass = getClass().getGenericSuperclass();
-        Type genericType = ((ParameterizedType) superClass).getActualTypeArguments()[0];
-        Type listGenericType = TypeToken.getParameterized(ArrayList.class, genericType).getType();
-        return new Gson().fromJson(from, listGenericType);
+        return GSON.fromJson(from, getListOfTypeParam1());
     }
 
     @Override
     public String convertWrite(To to) {
-        Type superClass = getClass().getGenericSuperclass();
-        Type genericType = ((ParameterizedType) superClass).getActualTypeArguments()[0];
-        return new Gson().toJson(to, genericType);
+        return GSON.toJson(to, getTypeParam1());
     }
 
     @Override
     public String convertWriteList(List<To> to) {
-        Type superClass = getClass().getGenericSuperclass();
-        Type genericType = ((ParameterizedType) superClass).getActualTypeArguments()[0];
-        Type listGenericType = TypeToken.getParameterized(ArrayList.class, genericType).getType();
-        return new Gson().toJson(to, listGenericType);
+        return GSON.toJson(to, getListOfTypeParam1());
     }
 }
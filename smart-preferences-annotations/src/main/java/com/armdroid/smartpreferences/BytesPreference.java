@@ -0,0 +1,38 @@
+package com.armdroid.smartpreferences;
+
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation is used with fields and indicates that the field is working with byte array preference.
+ * Shared preferences have no binary type, so value is stored as string preference holding Base64 encoding of the
+ * bytes without padding, which needs no transformer and is 4/3 of the size of the bytes.
+ * Field does not have to be of type byte[], as this annotation can be used with {@link Transform} and
+ * appropriate transformation can transform byte[] to any object. For example:
+ *
+ *<pre><code>
+ * {@literal @}BytesPreference
+ *  public byte[] a;
+ *
+ * {@literal @}BytesPreference
+ * {@literal @}Transform(using = CustomTransformer.class)
+ *  public Custom custom;
+ *
+ * </code></pre>
+ *
+ * Field is set to null if value is not found with associated key.
+ */
+@Target({ElementType.FIELD})
+@Retention(RetentionPolicy.CLASS)
+public @interface BytesPreference {
+
+    /**
+     * This attribute can be set to indicate the key that will be used working with preferences. If this
+     * attribute is empty, SmartPreferences uses the name of field as key.
+     * @return Preference key to find value.
+     */
+    String named() default "";
+}
@@ -0,0 +1,49 @@
+package com.armdroid.smartpreferences;
+
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation is used with fields and indicates that the field is working with double array preference.
+ * Shared preferences have no array types, so value is stored as string preference holding Base64 encoding of
+ * raw bits of values, so they are read back exactly. Value is decoded straight into double[] without boxing.
+ * Field can be of type double[] or List&lt;Double&gt;, and it does not have to be of these types at all, as this
+ * annotation can be used with {@link Transform} and appropriate transformation can transform double[] to any object.
+ * For example:
+ *
+ *<pre><code>
+ * {@literal @}DoubleArrayPreference
+ *  public double[] a;
+ *
+ * {@literal @}DoubleArrayPreference
+ *  public List&lt;Double&gt; a;
+ *
+ * {@literal @}DoubleArrayPreference
+ * {@literal @}Transform(using = CustomTransformer.class)
+ *  public Custom custom;
+ *
+ * </code></pre>
+ *
+ * Field gets its own copy of stored values, so it can be modified freely and written back.
+ */
+@Target({ElementType.FIELD})
+@Retention(RetentionPolicy.CLASS)
+public @interface DoubleArrayPreference {
+
+    /**
+     * This attribute can be set to indicate the key that will be used working with preferences. If this
+     * attribute is empty, SmartPreferences uses the name of field as key.
+     * @return Preference key to find value.
+     */
+    String named() default "";
+
+    /**
+     * This attribute sets the default value when reading from shared preferences. In case value is not found with
+     * associated key, a new array (or list) with these values will be returned.
+     * @return Default preference values if key not found.
+     */
+    double[] defaultValue() default {};
+}
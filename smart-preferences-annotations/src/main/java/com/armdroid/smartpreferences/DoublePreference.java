@@ -0,0 +1,47 @@
+package com.armdroid.smartpreferences;
+
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation is used with fields and indicates that the field is working with double preference.
+ * Shared preferences have no double type, so value is stored as long preference holding raw bits of the double,
+ * which keeps it without any loss of precision.
+ * Field does not have to be of type double/Double, as this annotation can be used with {@link Transform} and
+ * appropriate transformation can transform double to any object. For example:
+ *
+ *<pre><code>
+ * {@literal @}DoublePreference
+ *  public double a;
+ *
+ * <pre><code>
+ * {@literal @}DoublePreference
+ *  public Double a;
+ *
+ * {@literal @}DoublePreference
+ * {@literal @}Transform(using = CustomTransformer.class)
+ *  public Custom custom;
+ *
+ * </code></pre>
+ */
+@Target({ElementType.FIELD})
+@Retention(RetentionPolicy.CLASS)
+public @interface DoublePreference {
+
+    /**
+     * This attribute can be set to indicate the key that will be used working with preferences. If this
+     * attribute is empty, SmartPreferences uses the name of field as key.
+     * @return Preference key to find value.
+     */
+    String named() default "";
+
+    /**
+     * This attribute sets the default value when reading from shared preferences. In case value is not found with
+     * associated key, this value will be returned.
+     * @return Default preference value if key not found.
+     */
+    double defaultValue() default 0D;
+}
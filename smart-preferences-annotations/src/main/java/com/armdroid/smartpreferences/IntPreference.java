@@ -26,7 +26,7 @@ import java.lang.annotation.Target;
  * </code></pre>
  */
 @Target({ElementType.FIELD})
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.CLASS)
 public @interface IntPreference {
 
     /**
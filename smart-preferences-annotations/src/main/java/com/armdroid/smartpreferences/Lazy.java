@@ -0,0 +1,47 @@
+package com.armdroid.smartpreferences;
+
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation is used on a class or on a field with one of the following annotations:
+ * <br>
+ * {@link IntPreference}, {@link FloatPreference}, {@link LongPreference}, {@link StringPreference}, {@link BooleanPreference}.
+ * <br><br>
+ * It indicates that the field is not read by readAll() of generated class. Instead, generated class has accessors
+ * get{FieldName}() and set{FieldName}(), which read and decode the value on first access and keep it in the field
+ * until value in preferences is changed while changes are observed, or until next readAll(). Value set with the
+ * setter is kept until it is written. It is useful for expensive {@link Transform} fields which are rarely used.
+ * Lazy fields which were never accessed are not written by writeAll(), so they should be changed with the setter.
+ * For example:
+ *
+ *<pre><code>
+ * {@literal @}Lazy
+ *  public class Settings {
+ *
+ *     {@literal @}StringPreference
+ *     {@literal @}Transform(using = GsonTransformer.class, typeParam1 = Profile.class)
+ *      public Profile profile;
+ *
+ *     {@literal @}IntPreference
+ *     {@literal @}Lazy(false)
+ *      public int launchCount;
+ *  }
+ *
+ *  // profile is read and decoded here
+ *  Profile profile = settingsPreferences.getProfile();
+ *</code></pre>
+ */
+@Target({ElementType.TYPE, ElementType.FIELD})
+@Retention(RetentionPolicy.CLASS)
+public @interface Lazy {
+
+    /**
+     * This attribute allows a field to override annotation of its class.
+     * @return true if field is read lazily, false otherwise.
+     */
+    boolean value() default true;
+}
@@ -0,0 +1,50 @@
+package com.armdroid.smartpreferences;
+
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation is used with fields and indicates that the field is working with long array preference.
+ * Shared preferences have no array types, so value is stored as string preference holding Base64 encoding of
+ * values packed as varints of differences between subsequent values, so that sorted values, counters and
+ * timestamps take one or two bytes each. Value is decoded straight into long[] without boxing.
+ * Field can be of type long[] or List&lt;Long&gt;, and it does not have to be of these types at all, as this
+ * annotation can be used with {@link Transform} and appropriate transformation can transform long[] to any object.
+ * For example:
+ *
+ *<pre><code>
+ * {@literal @}LongArrayPreference
+ *  public long[] a;
+ *
+ * {@literal @}LongArrayPreference
+ *  public List&lt;Long&gt; a;
+ *
+ * {@literal @}LongArrayPreference
+ * {@literal @}Transform(using = CustomTransformer.class)
+ *  public Custom custom;
+ *
+ * </code></pre>
+ *
+ * Field gets its own copy of stored values, so it can be modified freely and written back.
+ */
+@Target({ElementType.FIELD})
+@Retention(RetentionPolicy.CLASS)
+public @interface LongArrayPreference {
+
+    /**
+     * This attribute can be set to indicate the key that will be used working with preferences. If this
+     * attribute is empty, SmartPreferences uses the name of field as key.
+     * @return Preference key to find value.
+     */
+    String named() default "";
+
+    /**
+     * This attribute sets the default value when reading from shared preferences. In case value is not found with
+     * associated key, a new array (or list) with these values will be returned.
+     * @return Default preference values if key not found.
+     */
+    long[] defaultValue() default {};
+}
@@ -36,8 +36,17 @@ import java.lang.annotation.Target;
  *  }
  *</code></pre>
  *
+ * By default, every change event updates the field and invokes the listener method, even if the same value was
+ * written again. With skipUnchanged set, value is compared with the value generated class last read, wrote or
+ * delivered: primitive values are compared directly and fields with {@link Transform} compare the encoded value,
+ * so it is decoded and listener is invoked only if value really changed.
  */
 @Target({ElementType.FIELD})
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.CLASS)
 public @interface Observe {
+
+    /**
+     * @return true if change events which do not change value are ignored, false otherwise.
+     */
+    boolean skipUnchanged() default false;
 }
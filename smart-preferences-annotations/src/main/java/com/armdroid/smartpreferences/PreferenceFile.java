@@ -0,0 +1,43 @@
+package com.armdroid.smartpreferences;
+
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation is used on a class or on a field with one of the following annotations:
+ * <br>
+ * {@link IntPreference}, {@link FloatPreference}, {@link LongPreference}, {@link StringPreference}, {@link BooleanPreference}.
+ * <br><br>
+ * It indicates that preferences are kept in a separate preferences file instead of the default one set up by
+ * SmartPreferences. Annotation on a field overrides annotation on its class. As the whole file is rewritten on every
+ * write, it is useful to keep frequently written preferences in a small file, separately from large ones which rarely change.
+ * For example:
+ *
+ *<pre><code>
+ * {@literal @}PreferenceFile(name = "settings")
+ *  public class Settings {
+ *
+ *     {@literal @}StringPreference
+ *     {@literal @}Transform(using = GsonTransformer.class, typeParam1 = Profile.class)
+ *      public Profile profile;
+ *
+ *     {@literal @}IntPreference
+ *     {@literal @}PreferenceFile(name = "counters")
+ *      public int launchCount;
+ *  }
+ *</code></pre>
+ */
+@Target({ElementType.TYPE, ElementType.FIELD})
+@Retention(RetentionPolicy.CLASS)
+public @interface PreferenceFile {
+
+    /**
+     * This attribute is the name of preferences file, as it would be passed to
+     * {@link android.content.Context#getSharedPreferences(String, int)}. It should never be empty.
+     * @return Name of preferences file.
+     */
+    String name();
+}
@@ -4,6 +4,10 @@ import java.util.List;
 
 /**
  * Interface for applying transformations between 2 types (types can match as well).
+ * <br><br>
+ * Generated classes create a single instance of transformer for each combination of transformer class and type parameters
+ * and reuse it for all reads, writes and change events. As these may happen on different threads, implementations
+ * must be thread-safe. In return, expensive state (parsers, resolved generic types etc.) can be kept between calls.
  * @param <From> Type that is being converted
  * @param <To> Type that is converted to
  */
@@ -22,7 +22,7 @@ import java.lang.annotation.Target;
  * </code></pre>
  */
 @Target({ElementType.FIELD})
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.CLASS)
 public @interface StringPreference {
 
     /**
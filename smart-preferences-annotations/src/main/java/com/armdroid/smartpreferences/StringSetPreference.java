@@ -0,0 +1,44 @@
+package com.armdroid.smartpreferences;
+
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation is used with fields and indicates that the field is working with string set preference, which is
+ * stored natively by shared preferences.
+ * Field does not have to be of type Set&lt;String&gt;, as this annotation can be used with {@link Transform} and
+ * appropriate transformation can transform Set&lt;String&gt; to any object. For example:
+ *
+ *<pre><code>
+ * {@literal @}StringSetPreference
+ *  public Set&lt;String&gt; a;
+ *
+ * {@literal @}StringSetPreference
+ * {@literal @}Transform(using = CustomTransformer.class)
+ *  public Custom custom;
+ *
+ * </code></pre>
+ *
+ * Field gets its own copy of stored set, so it can be modified freely and written back.
+ */
+@Target({ElementType.FIELD})
+@Retention(RetentionPolicy.CLASS)
+public @interface StringSetPreference {
+
+    /**
+     * This attribute can be set to indicate the key that will be used working with preferences. If this
+     * attribute is empty, SmartPreferences uses the name of field as key.
+     * @return Preference key to find value.
+     */
+    String named() default "";
+
+    /**
+     * This attribute sets the default value when reading from shared preferences. In case value is not found with
+     * associated key, a new set with these values will be returned.
+     * @return Default preference values if key not found.
+     */
+    String[] defaultValue() default {};
+}
@@ -26,7 +26,7 @@ import java.lang.annotation.Target;
  *  carrying the value of field before update as well.
  */
 @Target({ElementType.METHOD})
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.CLASS)
 public @interface Subscribe {
 
     /**
@@ -20,26 +20,24 @@ import java.lang.annotation.Target;
  * {@literal @}Transform(using = GsonTransformer.class, typeParam1 = Custom.class) //to imitate GsonTranformer<Custom>
  *  protected static Custom custom;
  *
- *  public abstract class GsonTransformer<To> implements PreferenceTransformer<String, To> {
+ *  public abstract class GsonTransformer<To> extends BasePreferenceTransformer<String, To> {
+ *
+ *  private static final Gson GSON = new Gson();
  *
  * {@literal @}Override
  *  public To convertRead(String from) {
- *      Type superClass = getClass().getGenericSuperclass();
- *      Type genericType = ((ParameterizedType) superClass).getActualTypeArguments()[0];
- *      return new Gson().fromJson(from, genericType);
+ *      return GSON.fromJson(from, getTypeParam1());
  *  }
  *
  * {@literal @}Override
  *  public String convertWrite(To to) {
- *      Type superClass = getClass().getGenericSuperclass();
- *      Type genericType = ((ParameterizedType) superClass).getActualTypeArguments()[0];
- *      return new Gson().toJson(genericType);
+ *      return GSON.toJson(to, getTypeParam1());
  *  }
  *}
  *
  */
 @Target({ElementType.FIELD})
-@Retention(RetentionPolicy.SOURCE)
+@Retention(RetentionPolicy.CLASS)
 public @interface Transform {
 
     /**
@@ -70,4 +68,14 @@ public @interface Transform {
      * @return Transformer class.
      */
     Class typeParam2() default Object.class;
+
+    /**
+     * This optional attribute enables caching of decoded values. Generated class remembers the last raw preference value
+     * and the object it was decoded to, so reading unchanged preference again does not run the transformer. This is useful
+     * for large values which are read often, e.g. on every Activity recreation.
+     * <br><br>
+     * Note that the same decoded instance is returned to every read of unchanged value, so it should not be modified in place.
+     * @return true if decoded values are cached.
+     */
+    boolean cacheDecoded() default false;
 }
@@ -0,0 +1,27 @@
+package com.armdroid.smartpreferences.benchmark;
+
+import com.armdroid.smartpreferences.PreferenceBinder;
+
+/**
+ * Synthetic target class of the annotation processor. Implementations are generated by "generateBenchmarkTargets"
+ * task with the given number of fields of mixed types, where every sixth field is transformed and every third one
+ * is observed. Field "field0" is an observed int and "field5" is a transformed {@link BenchmarkValue}, so methods
+ * of generated class for single fields can be called through this interface.
+ */
+public interface BenchmarkTarget {
+
+    PreferenceBinder bind();
+
+    /**
+     * Sets every field to a value different from its type default.
+     */
+    void fill(int seed);
+
+    void setIntField(int value);
+
+    void readIntField(PreferenceBinder binder);
+
+    void writeIntField(PreferenceBinder binder);
+
+    void readTransformedField(PreferenceBinder binder);
+}
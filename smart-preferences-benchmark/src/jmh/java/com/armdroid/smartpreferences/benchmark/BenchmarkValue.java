@@ -0,0 +1,24 @@
+package com.armdroid.smartpreferences.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BenchmarkValue {
+
+    public String name;
+    public int count;
+    public double ratio;
+    public List<String> tags;
+
+    public static BenchmarkValue create(int seed) {
+        BenchmarkValue value = new BenchmarkValue();
+        value.name = "value-" + seed;
+        value.count = seed;
+        value.ratio = seed / 3d;
+        value.tags = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            value.tags.add("tag-" + seed + "-" + i);
+        }
+        return value;
+    }
+}
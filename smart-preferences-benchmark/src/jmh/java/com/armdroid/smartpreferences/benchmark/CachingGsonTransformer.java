@@ -0,0 +1,31 @@
+package com.armdroid.smartpreferences.benchmark;
+
+import com.armdroid.smartpreferences.BasePreferenceTransformer;
+import com.google.gson.Gson;
+
+import java.util.List;
+
+public abstract class CachingGsonTransformer<To> extends BasePreferenceTransformer<String, To> {
+
+    private static final Gson GSON = new Gson();
+
+    @Override
+    public To convertRead(String from) {
+        return GSON.fromJson(from, getTypeParam1());
+    }
+
+    @Override
+    public List<To> convertReadList(String from) {
+        return GSON.fromJson(from, getListOfTypeParam1());
+    }
+
+    @Override
+    public String convertWrite(To to) {
+        return GSON.toJson(to, getTypeParam1());
+    }
+
+    @Override
+    public String convertWriteList(List<To> to) {
+        return GSON.toJson(to, getListOfTypeParam1());
+    }
+}
@@ -0,0 +1,129 @@
+package com.armdroid.smartpreferences.benchmark;
+
+import android.content.SharedPreferences;
+
+import com.armdroid.smartpreferences.PreferenceChangeListener;
+import com.armdroid.smartpreferences.PreferenceRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures cost of a single preference change with many live binders. "perBinder" dispatch imitates binders which
+ * register themselves in {@link SharedPreferences} and compare changed key with each observed key, "keyIndexed"
+ * dispatch imitates binders registered in {@link PreferenceRepository} for their keys only, with hashed dispatch.
+ * Every binder observes its own set of keys, so a change concerns exactly one binder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DispatchBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int binderCount;
+
+    @Param({"1", "10", "50"})
+    public int observedKeyCount;
+
+    @Param({"perBinder", "keyIndexed"})
+    public String dispatch;
+
+    private InMemorySharedPreferences mPreferences;
+    private PreferenceRepository mRepository;
+    private final List<IndexedBinder> mIndexedBinders = new ArrayList<>();
+    private String[] mChangedKeys;
+    private int mCounter;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) {
+        mPreferences = new InMemorySharedPreferences();
+        mRepository = PreferenceRepository.getInstance();
+        mRepository.setPreferences(mPreferences);
+        mChangedKeys = new String[binderCount];
+        for (int i = 0; i < binderCount; i++) {
+            String[] keys = new String[observedKeyCount];
+            for (int j = 0; j < observedKeyCount; j++) {
+                keys[j] = "binder" + i + "key" + j;
+            }
+            mChangedKeys[i] = keys[keys.length - 1];
+            if ("perBinder".equals(dispatch)) {
+                mPreferences.registerOnSharedPreferenceChangeListener(new PerBinderListener(keys, blackhole));
+            } else {
+                IndexedBinder binder = new IndexedBinder(keys, blackhole);
+                mRepository.registerPreferenceChangeListener(binder, keys);
+                mIndexedBinders.add(binder);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (IndexedBinder binder : mIndexedBinders) {
+            mRepository.unregisterPreferenceChangeListener(binder, binder.mKeys);
+        }
+    }
+
+    @Benchmark
+    public void change() {
+        int counter = mCounter++;
+        mPreferences.edit().putInt(mChangedKeys[counter % binderCount], counter).apply();
+    }
+
+    private static final class PerBinderListener implements SharedPreferences.OnSharedPreferenceChangeListener {
+
+        private final String[] mKeys;
+        private final Blackhole mBlackhole;
+
+        private PerBinderListener(String[] keys, Blackhole blackhole) {
+            mKeys = keys;
+            mBlackhole = blackhole;
+        }
+
+        @Override
+        public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+            for (String observedKey : mKeys) {
+                if (key.equals(observedKey)) {
+                    mBlackhole.consume(sharedPreferences.getInt(key, 0));
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class IndexedBinder implements PreferenceChangeListener {
+
+        private final String[] mKeys;
+        private final Map<String, Integer> mKeyIndex = new HashMap<>();
+        private final Blackhole mBlackhole;
+
+        private IndexedBinder(String[] keys, Blackhole blackhole) {
+            mKeys = keys;
+            mBlackhole = blackhole;
+            for (int i = 0; i < keys.length; i++) {
+                mKeyIndex.put(keys[i], i);
+            }
+        }
+
+        @Override
+        public void onPreferenceChanged(PreferenceRepository repository, String key) {
+            if (mKeyIndex.get(key) != null) {
+                mBlackhole.consume(repository.getInt(key, 0));
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.armdroid.smartpreferences.benchmark;
+
+import com.armdroid.smartpreferences.PreferenceBinder;
+import com.armdroid.smartpreferences.PreferenceRepository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures methods of classes generated by the annotation processor for {@link BenchmarkTarget} classes with
+ * different number of fields, so that changes of generated code show up in throughput, latency percentiles and,
+ * with "-prof gc", in allocation rate. Preferences are kept in {@link InMemorySharedPreferences}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GeneratedBinderBenchmark {
+
+    private static final String TARGET_CLASS_PREFIX = BenchmarkTarget.class.getPackage().getName() + ".target.Target";
+
+    @Param({"10", "50", "100", "500"})
+    public int fieldCount;
+
+    private InMemorySharedPreferences mPreferences;
+    private BenchmarkTarget mTarget;
+    private PreferenceBinder mBinder;
+    private int mCounter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        mPreferences = new InMemorySharedPreferences();
+        PreferenceRepository.getInstance().setPreferences(mPreferences);
+        mTarget = (BenchmarkTarget) Class.forName(TARGET_CLASS_PREFIX + fieldCount).newInstance();
+        mBinder = mTarget.bind();
+        // stored values are not defaults, so reads decode real values
+        mTarget.fill(1);
+        mBinder.writeAll();
+        mBinder.observeChanges();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        mBinder.unbind();
+    }
+
+    @Benchmark
+    public BenchmarkTarget readAll() {
+        mBinder.readAll();
+        return mTarget;
+    }
+
+    @Benchmark
+    public void writeAllUnchanged() {
+        mBinder.writeAll();
+    }
+
+    @Benchmark
+    public void writeAllOneChanged() {
+        mTarget.setIntField(mCounter++);
+        mBinder.writeAll();
+    }
+
+    @Benchmark
+    public BenchmarkTarget readIntField() {
+        mTarget.readIntField(mBinder);
+        return mTarget;
+    }
+
+    @Benchmark
+    public BenchmarkTarget readTransformedField() {
+        mTarget.readTransformedField(mBinder);
+        return mTarget;
+    }
+
+    @Benchmark
+    public void writeIntField() {
+        mTarget.setIntField(mCounter++);
+        mTarget.writeIntField(mBinder);
+    }
+
+    @Benchmark
+    public BenchmarkTarget setTypeDefaults() {
+        mBinder.setTypeDefaults();
+        return mTarget;
+    }
+
+    /**
+     * Change of an observed key, dispatched through the repository to the binder which reads it again.
+     */
+    @Benchmark
+    public BenchmarkTarget dispatch() {
+        mPreferences.edit().putInt("field0", mCounter++).apply();
+        return mTarget;
+    }
+}
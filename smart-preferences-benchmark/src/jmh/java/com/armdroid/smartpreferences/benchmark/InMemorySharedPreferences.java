@@ -0,0 +1,172 @@
+package com.armdroid.smartpreferences.benchmark;
+
+import android.content.SharedPreferences;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@link SharedPreferences} stand-in which keeps values in memory and notifies listeners synchronously on the
+ * committing thread, so that benchmarks can run on plain JVM.
+ */
+public class InMemorySharedPreferences implements SharedPreferences {
+
+    private static final Object REMOVED = new Object();
+
+    private final Map<String, Object> mValues = new HashMap<>();
+    private final CopyOnWriteArrayList<OnSharedPreferenceChangeListener> mListeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public synchronized Map<String, ?> getAll() {
+        return new HashMap<>(mValues);
+    }
+
+    @Override
+    public synchronized String getString(String key, String defValue) {
+        Object value = mValues.get(key);
+        return value != null ? (String) value : defValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized Set<String> getStringSet(String key, Set<String> defValues) {
+        Object value = mValues.get(key);
+        return value != null ? (Set<String>) value : defValues;
+    }
+
+    @Override
+    public synchronized int getInt(String key, int defValue) {
+        Object value = mValues.get(key);
+        return value != null ? (Integer) value : defValue;
+    }
+
+    @Override
+    public synchronized long getLong(String key, long defValue) {
+        Object value = mValues.get(key);
+        return value != null ? (Long) value : defValue;
+    }
+
+    @Override
+    public synchronized float getFloat(String key, float defValue) {
+        Object value = mValues.get(key);
+        return value != null ? (Float) value : defValue;
+    }
+
+    @Override
+    public synchronized boolean getBoolean(String key, boolean defValue) {
+        Object value = mValues.get(key);
+        return value != null ? (Boolean) value : defValue;
+    }
+
+    @Override
+    public synchronized boolean contains(String key) {
+        return mValues.containsKey(key);
+    }
+
+    @Override
+    public Editor edit() {
+        return new InMemoryEditor();
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        mListeners.addIfAbsent(listener);
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        mListeners.remove(listener);
+    }
+
+    private void commitChanges(Map<String, Object> changes, boolean clear) {
+        synchronized (this) {
+            if (clear) {
+                mValues.clear();
+            }
+            for (Map.Entry<String, Object> change : changes.entrySet()) {
+                if (change.getValue() == REMOVED) {
+                    mValues.remove(change.getKey());
+                } else {
+                    mValues.put(change.getKey(), change.getValue());
+                }
+            }
+        }
+        if (mListeners.isEmpty()) {
+            return;
+        }
+        for (String key : changes.keySet()) {
+            for (OnSharedPreferenceChangeListener listener : mListeners) {
+                listener.onSharedPreferenceChanged(this, key);
+            }
+        }
+    }
+
+    private final class InMemoryEditor implements Editor {
+
+        private final Map<String, Object> mChanges = new LinkedHashMap<>();
+        private boolean mClear;
+
+        @Override
+        public Editor putString(String key, String value) {
+            mChanges.put(key, value == null ? REMOVED : value);
+            return this;
+        }
+
+        @Override
+        public Editor putStringSet(String key, Set<String> values) {
+            mChanges.put(key, values == null ? REMOVED : new HashSet<>(values));
+            return this;
+        }
+
+        @Override
+        public Editor putInt(String key, int value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putLong(String key, long value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putFloat(String key, float value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putBoolean(String key, boolean value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor remove(String key) {
+            mChanges.put(key, REMOVED);
+            return this;
+        }
+
+        @Override
+        public Editor clear() {
+            mClear = true;
+            return this;
+        }
+
+        @Override
+        public boolean commit() {
+            commitChanges(mChanges, mClear);
+            return true;
+        }
+
+        @Override
+        public void apply() {
+            commitChanges(mChanges, mClear);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package com.armdroid.smartpreferences.benchmark;
+
+import com.armdroid.smartpreferences.Processor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * Measures compile time spent by the annotation processor on synthetic sources with the given number of annotated
+ * fields, {@value #FIELDS_PER_CLASS} per class, so that processor time can be tracked over releases. Fields have mixed
+ * types, some are private with getter and setter and some are observed with a {@code @Subscribe} method, so that
+ * validation of fields against methods of their class is part of the measurement. Sources are compiled in memory
+ * with "-proc:only". "process" runs the processor, "parse" runs no processor and shows the part of the time spent by
+ * javac itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ProcessorBenchmark {
+
+    private static final int FIELDS_PER_CLASS = 50;
+    private static final String SOURCE_PACKAGE = BenchmarkTarget.class.getPackage().getName() + ".processor";
+
+    @Param({"1000", "5000"})
+    public int fieldCount;
+
+    private JavaCompiler mCompiler;
+    private List<JavaFileObject> mSources;
+    private List<String> mOptions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mCompiler = ToolProvider.getSystemJavaCompiler();
+        if (mCompiler == null) {
+            throw new IllegalStateException("Benchmark must run on JDK, system Java compiler is not available");
+        }
+        mSources = new ArrayList<>();
+        for (int firstField = 0; firstField < fieldCount; firstField += FIELDS_PER_CLASS) {
+            String className = "Source" + mSources.size();
+            mSources.add(new Source(SOURCE_PACKAGE + "." + className,
+                    createSource(className, firstField, Math.min(FIELDS_PER_CLASS, fieldCount - firstField))));
+        }
+        mOptions = Arrays.asList("-proc:only", "-classpath", System.getProperty("java.class.path"));
+    }
+
+    @Benchmark
+    public int process() throws IOException {
+        return compile(Collections.singletonList(new Processor()));
+    }
+
+    @Benchmark
+    public int parse() throws IOException {
+        return compile(Collections.emptyList());
+    }
+
+    /**
+     * @return Number of generated sources.
+     */
+    private int compile(List<? extends javax.annotation.processing.Processor> processors) throws IOException {
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        try (MemoryFileManager fileManager = new MemoryFileManager(mCompiler.getStandardFileManager(diagnostics, null, null))) {
+            JavaCompiler.CompilationTask task = mCompiler.getTask(null, fileManager, diagnostics, mOptions, null, mSources);
+            task.setProcessors(processors);
+            if (!task.call()) {
+                throw new IllegalStateException("Compilation failed: " + diagnostics.getDiagnostics());
+            }
+            return fileManager.mGeneratedCount;
+        }
+    }
+
+    private static String createSource(String className, int firstField, int count) {
+        StringBuilder fields = new StringBuilder();
+        StringBuilder methods = new StringBuilder();
+        for (int i = firstField; i < firstField + count; i++) {
+            String name = "field" + i;
+            String capitalizedName = "Field" + i;
+            String type;
+            switch (i % 6) {
+                case 0:
+                    fields.append("    @IntPreference\n");
+                    type = "int";
+                    break;
+                case 1:
+                    fields.append("    @LongPreference\n");
+                    type = "long";
+                    break;
+                case 2:
+                    fields.append("    @FloatPreference\n");
+                    type = "float";
+                    break;
+                case 3:
+                    fields.append("    @BooleanPreference\n");
+                    type = "boolean";
+                    break;
+                case 4:
+                    fields.append("    @StringPreference\n");
+                    type = "String";
+                    break;
+                default:
+                    fields.append("    @StringPreference\n")
+                            .append("    @Transform(using = CachingGsonTransformer.class, typeParam1 = BenchmarkValue.class)\n");
+                    type = "BenchmarkValue";
+            }
+            if (i % 3 == 0) {
+                fields.append("    @Observe\n");
+                methods.append("    @Subscribe(tag = \"").append(name).append("\")\n")
+                        .append("    void on").append(capitalizedName).append("(").append(type).append(" oldValue) {\n    }\n\n");
+            }
+            if (i % 4 == 0) {
+                fields.append("    private ");
+                methods.append("    public ").append(type).append(" get").append(capitalizedName).append("() {\n")
+                        .append("        return ").append(name).append(";\n    }\n\n")
+                        .append("    public void set").append(capitalizedName).append("(").append(type).append(" value) {\n")
+                        .append("        ").append(name).append(" = value;\n    }\n\n");
+            } else {
+                fields.append("    public ");
+            }
+            fields.append(type).append(" ").append(name).append(";\n\n");
+        }
+        return "package " + SOURCE_PACKAGE + ";\n\n"
+                + "import com.armdroid.smartpreferences.*;\n"
+                + "import " + BenchmarkValue.class.getName() + ";\n"
+                + "import " + CachingGsonTransformer.class.getName() + ";\n\n"
+                + "public class " + className + " {\n\n"
+                + fields
+                + methods
+                + "}\n";
+    }
+
+    private static final class Source extends SimpleJavaFileObject {
+
+        private final String mContent;
+
+        Source(String className, String content) {
+            super(URI.create("memory:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            mContent = content;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return mContent;
+        }
+    }
+
+    private static final class GeneratedSource extends SimpleJavaFileObject {
+
+        private final StringWriter mContent = new StringWriter();
+
+        GeneratedSource(String className, Kind kind) {
+            super(URI.create("memory:///generated/" + className.replace('.', '/') + kind.extension), kind);
+        }
+
+        @Override
+        public Writer openWriter() {
+            return mContent;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return mContent.toString();
+        }
+    }
+
+    /**
+     * Keeps generated sources in memory, so that disk writes are not part of the measurement.
+     */
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+
+        private int mGeneratedCount;
+
+        MemoryFileManager(StandardJavaFileManager fileManager) {
+            super(fileManager);
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+            mGeneratedCount++;
+            return new GeneratedSource(className, kind);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.armdroid.smartpreferences.benchmark;
+
+import com.armdroid.smartpreferences.InMemoryPreferenceStore;
+import com.armdroid.smartpreferences.PreferenceStore;
+import com.armdroid.smartpreferences.SharedPreferencesStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reading of {@value #READ_KEY_COUNT} keys at once, which is what readAll() of a generated class does for
+ * each preferences file, from files with the given number of keys. "sharedPreferences" reads them with
+ * {@link SharedPreferencesStore#getValues(String...)}, which copies the whole file, "sharedPreferencesPerKey" reads
+ * them one by one with typed getters, which is not consistent but does not depend on the size of the file, and
+ * "inMemory" reads them with {@link InMemoryPreferenceStore#getValues(String...)}, which copies requested keys only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnapshotBenchmark {
+
+    private static final int READ_KEY_COUNT = 20;
+
+    @Param({"100", "1000", "10000"})
+    public int keyCount;
+
+    private PreferenceStore mSharedPreferencesStore;
+    private PreferenceStore mInMemoryStore;
+    private String[] mReadKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        mSharedPreferencesStore = new SharedPreferencesStore(new InMemorySharedPreferences());
+        mInMemoryStore = new InMemoryPreferenceStore();
+        fill(mSharedPreferencesStore);
+        fill(mInMemoryStore);
+
+        mReadKeys = new String[READ_KEY_COUNT];
+        for (int i = 0; i < READ_KEY_COUNT; i++) {
+            // keys with even indices, spread over the whole file
+            mReadKeys[i] = "key" + i * 2 * (keyCount / (2 * READ_KEY_COUNT));
+        }
+    }
+
+    private void fill(PreferenceStore store) {
+        PreferenceStore.Editor editor = store.edit();
+        for (int i = 0; i < keyCount; i++) {
+            if (i % 2 == 0) {
+                editor.putInt("key" + i, i);
+            } else {
+                editor.putString("key" + i, "value of preference number " + i);
+            }
+        }
+        editor.commit();
+    }
+
+    @Benchmark
+    public Map<String, ?> sharedPreferences() {
+        return mSharedPreferencesStore.getValues(mReadKeys);
+    }
+
+    @Benchmark
+    public void sharedPreferencesPerKey(Blackhole blackhole) {
+        for (String key : mReadKeys) {
+            // read keys have even indices, so they are all int preferences
+            blackhole.consume(mSharedPreferencesStore.getInt(key, 0));
+        }
+    }
+
+    @Benchmark
+    public Map<String, ?> inMemory() {
+        return mInMemoryStore.getValues(mReadKeys);
+    }
+}
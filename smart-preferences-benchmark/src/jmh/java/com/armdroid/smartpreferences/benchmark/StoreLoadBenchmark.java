@@ -0,0 +1,136 @@
+package com.armdroid.smartpreferences.benchmark;
+
+import com.armdroid.smartpreferences.BinaryPreferenceStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Measures time needed to load all values of a preferences file, which is what the first read waits for after
+ * initialization. "xml" parses file in the format of {@link android.content.SharedPreferences} with a pull parser,
+ * "binary" opens {@link BinaryPreferenceStore} with the same values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class StoreLoadBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int keyCount;
+
+    private File mDirectory;
+    private File mXmlFile;
+    private XMLInputFactory mXmlInputFactory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mDirectory = Files.createTempDirectory("load-benchmark").toFile();
+        mXmlFile = new File(mDirectory, "benchmark.xml");
+        mXmlInputFactory = XMLInputFactory.newInstance();
+
+        Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < keyCount; i++) {
+            switch (i % 4) {
+                case 0:
+                    values.put("key" + i, "value of preference number " + i);
+                    break;
+                case 1:
+                    values.put("key" + i, i);
+                    break;
+                case 2:
+                    values.put("key" + i, (long) i);
+                    break;
+                default:
+                    values.put("key" + i, i % 3 == 0);
+                    break;
+            }
+        }
+        XmlRewritingPreferenceStore.write(mXmlFile, values);
+
+        BinaryPreferenceStore store = BinaryPreferenceStore.open(mDirectory, "benchmark");
+        BinaryPreferenceStore.Editor editor = store.edit();
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof String) {
+                editor.putString(entry.getKey(), (String) value);
+            } else if (value instanceof Integer) {
+                editor.putInt(entry.getKey(), (Integer) value);
+            } else if (value instanceof Long) {
+                editor.putLong(entry.getKey(), (Long) value);
+            } else {
+                editor.putBoolean(entry.getKey(), (Boolean) value);
+            }
+        }
+        editor.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(mDirectory.toPath());
+    }
+
+    @Benchmark
+    public BinaryPreferenceStore binary() throws IOException {
+        return BinaryPreferenceStore.open(mDirectory, "benchmark");
+    }
+
+    @Benchmark
+    public Map<String, ?> xml() throws IOException, XMLStreamException {
+        Map<String, Object> values = new HashMap<>();
+        try (InputStream in = new FileInputStream(mXmlFile)) {
+            XMLStreamReader reader = mXmlInputFactory.createXMLStreamReader(in, "UTF-8");
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                    continue;
+                }
+                String name = reader.getAttributeValue(null, "name");
+                switch (reader.getLocalName()) {
+                    case "string":
+                        values.put(name, reader.getElementText());
+                        break;
+                    case "int":
+                        values.put(name, Integer.parseInt(reader.getAttributeValue(null, "value")));
+                        break;
+                    case "long":
+                        values.put(name, Long.parseLong(reader.getAttributeValue(null, "value")));
+                        break;
+                    case "boolean":
+                        values.put(name, Boolean.parseBoolean(reader.getAttributeValue(null, "value")));
+                        break;
+                    default:
+                        break;
+                }
+            }
+            reader.close();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,84 @@
+package com.armdroid.smartpreferences.benchmark;
+
+import com.armdroid.smartpreferences.LogPreferenceStore;
+import com.armdroid.smartpreferences.PreferenceStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures latency of writing a single counter into a store which already holds keyCount values. Write to
+ * {@link LogPreferenceStore} appends only the change, so its latency should not depend on keyCount, while
+ * {@link XmlRewritingPreferenceStore} rewrites all values like {@link android.content.SharedPreferences} does.
+ * "commit" waits until change is synced to disk, "apply" returns once it is handed over to the store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StoreWriteBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    public int keyCount;
+
+    @Param({"log", "xmlRewrite"})
+    public String store;
+
+    @Param({"apply", "commit"})
+    public String mode;
+
+    private File mDirectory;
+    private PreferenceStore mStore;
+    private int mCounter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mDirectory = Files.createTempDirectory("store-benchmark").toFile();
+        if ("log".equals(store)) {
+            mStore = LogPreferenceStore.open(mDirectory, "benchmark");
+        } else {
+            mStore = new XmlRewritingPreferenceStore(new File(mDirectory, "benchmark.xml"));
+        }
+        PreferenceStore.Editor editor = mStore.edit();
+        for (int i = 0; i < keyCount; i++) {
+            editor.putString("key" + i, "value of preference number " + i);
+        }
+        editor.commit();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (mStore instanceof LogPreferenceStore) {
+            ((LogPreferenceStore) mStore).close();
+        }
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(mDirectory.toPath());
+    }
+
+    @Benchmark
+    public boolean writeCounter() {
+        PreferenceStore.Editor editor = mStore.edit().putInt("counter", mCounter++);
+        if ("commit".equals(mode)) {
+            return editor.commit();
+        }
+        editor.apply();
+        return true;
+    }
+}
@@ -0,0 +1,86 @@
+package com.armdroid.smartpreferences.benchmark;
+
+import com.armdroid.smartpreferences.PreferenceTransformer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares transformer based on {@link com.armdroid.smartpreferences.BasePreferenceTransformer}, which resolves
+ * types once and keeps a single codec, with {@link ReflectiveGsonTransformer}, which does both on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TransformerBenchmark {
+
+    private PreferenceTransformer<String, BenchmarkValue> mReflective;
+    private PreferenceTransformer<String, BenchmarkValue> mCaching;
+
+    private BenchmarkValue mValue;
+    private List<BenchmarkValue> mValues;
+    private String mJson;
+    private String mListJson;
+
+    @Setup
+    public void setUp() {
+        mReflective = new ReflectiveGsonTransformer<BenchmarkValue>(){};
+        mCaching = new CachingGsonTransformer<BenchmarkValue>(){};
+        mValue = BenchmarkValue.create(1);
+        mValues = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            mValues.add(BenchmarkValue.create(i));
+        }
+        mJson = mCaching.convertWrite(mValue);
+        mListJson = mCaching.convertWriteList(mValues);
+    }
+
+    @Benchmark
+    public BenchmarkValue reflectiveConvertRead() {
+        return mReflective.convertRead(mJson);
+    }
+
+    @Benchmark
+    public BenchmarkValue cachingConvertRead() {
+        return mCaching.convertRead(mJson);
+    }
+
+    @Benchmark
+    public List<BenchmarkValue> reflectiveConvertReadList() {
+        return mReflective.convertReadList(mListJson);
+    }
+
+    @Benchmark
+    public List<BenchmarkValue> cachingConvertReadList() {
+        return mCaching.convertReadList(mListJson);
+    }
+
+    @Benchmark
+    public String reflectiveConvertWrite() {
+        return mReflective.convertWrite(mValue);
+    }
+
+    @Benchmark
+    public String cachingConvertWrite() {
+        return mCaching.convertWrite(mValue);
+    }
+
+    @Benchmark
+    public String reflectiveConvertWriteList() {
+        return mReflective.convertWriteList(mValues);
+    }
+
+    @Benchmark
+    public String cachingConvertWriteList() {
+        return mCaching.convertWriteList(mValues);
+    }
+}
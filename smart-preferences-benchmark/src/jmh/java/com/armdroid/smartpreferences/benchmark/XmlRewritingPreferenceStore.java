@@ -0,0 +1,57 @@
+package com.armdroid.smartpreferences.benchmark;
+
+import com.armdroid.smartpreferences.InMemoryPreferenceStore;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Imitates how {@link android.content.SharedPreferences} persists changes: every batch rewrites all values
+ * to an XML file, which is synced before commit returns.
+ */
+class XmlRewritingPreferenceStore extends InMemoryPreferenceStore {
+
+    private final File mFile;
+
+    XmlRewritingPreferenceStore(File file) {
+        mFile = file;
+    }
+
+    @Override
+    protected long onChangesApplied(boolean clear, Map<String, Object> changes) {
+        try {
+            write(mFile, getAll());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return 0;
+    }
+
+    /**
+     * Writes values in the format of {@link android.content.SharedPreferences} XML file and syncs the file.
+     */
+    static void write(File file, Map<String, ?> values) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            writer.write("<?xml version='1.0' encoding='utf-8' standalone='yes' ?>\n<map>\n");
+            for (Map.Entry<String, ?> entry : values.entrySet()) {
+                Object value = entry.getValue();
+                if (value instanceof String) {
+                    writer.write("    <string name=\"" + entry.getKey() + "\">" + value + "</string>\n");
+                } else {
+                    String tag = value.getClass().getSimpleName().toLowerCase();
+                    writer.write("    <" + tag + " name=\"" + entry.getKey() + "\" value=\"" + value + "\" />\n");
+                }
+            }
+            writer.write("</map>\n");
+            writer.flush();
+            out.getFD().sync();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.armdroid.smartpreferences;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.util.ElementFilter;
+
+/**
+ * Methods of a class with annotated fields, indexed by name and by tag of {@link Subscribe}. Index is built once per
+ * class, so that validation of every field looks up its getter, setter and subscriber instead of scanning all methods
+ * of the class again.
+ */
+public class ClassMethodIndex {
+
+    private final Map<String, List<ExecutableElement>> methodsByName = new HashMap<>();
+    private final Map<String, List<ExecutableElement>> subscribersByTag = new HashMap<>();
+
+    public ClassMethodIndex(Element clazz) {
+        for (ExecutableElement method : ElementFilter.methodsIn(clazz.getEnclosedElements())) {
+            add(methodsByName, method.getSimpleName().toString(), method);
+            Subscribe subscribe = method.getAnnotation(Subscribe.class);
+            if (subscribe != null) {
+                add(subscribersByTag, subscribe.tag(), method);
+            }
+        }
+    }
+
+    /**
+     * @return Methods with given name in declaration order, empty if there are none.
+     */
+    public List<ExecutableElement> getMethods(String name) {
+        return get(methodsByName, name);
+    }
+
+    /**
+     * @return Methods annotated with {@link Subscribe} with given tag in declaration order, empty if there are none.
+     */
+    public List<ExecutableElement> getSubscribers(String tag) {
+        return get(subscribersByTag, tag);
+    }
+
+    private static void add(Map<String, List<ExecutableElement>> index, String key, ExecutableElement method) {
+        index.computeIfAbsent(key, k -> new ArrayList<>(1)).add(method);
+    }
+
+    private static List<ExecutableElement> get(Map<String, List<ExecutableElement>> index, String key) {
+        List<ExecutableElement> methods = index.get(key);
+        return methods != null ? methods : Collections.emptyList();
+    }
+}
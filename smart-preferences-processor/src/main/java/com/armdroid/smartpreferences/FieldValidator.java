@@ -1,5 +1,10 @@
 package com.armdroid.smartpreferences;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.processing.Messager;
@@ -10,6 +15,7 @@ import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
 import javax.lang.model.type.MirroredTypeException;
+import javax.lang.model.type.TypeKind;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Elements;
@@ -21,7 +27,23 @@ import static javax.tools.Diagnostic.Kind.ERROR;
 
 public class FieldValidator {
 
-    public static boolean isValid(Element element, ProcessingEnvironment processingEnvironment, Messager messager) {
+    /**
+     * Instance methods of generated class which do not depend on fields, with their parameters.
+     */
+    private static final List<String> GENERATED_METHODS = Arrays.asList(
+            "getPreferenceRepository()",
+            "setTypeDefaults()",
+            "setChangeExecutors(decodeExecutor, deliveryExecutor)",
+            "readAll()",
+            "writeAll()",
+            "observeChanges()",
+            "stopObserveChanges()",
+            "unbind()");
+
+    /**
+     * @param methodIndex Methods of the enclosing class, used to find getter and setter of private fields.
+     */
+    public static boolean isValid(Element element, ClassMethodIndex methodIndex, ProcessingEnvironment processingEnvironment, Messager messager) {
         if (element.getKind() != ElementKind.FIELD) {
             error(messager, element, "Only fields can be annotated with @***Preference.");
             return false;
@@ -36,6 +58,17 @@ public class FieldValidator {
             return false;
         }
 
+        PreferenceFile preferenceFile = element.getAnnotation(PreferenceFile.class);
+        if (preferenceFile != null && preferenceFile.name().isEmpty()) {
+            error(messager, element, "Annotation @PreferenceFile must have non-empty name.");
+            return false;
+        }
+        PreferenceFile classPreferenceFile = element.getEnclosingElement().getAnnotation(PreferenceFile.class);
+        if (classPreferenceFile != null && classPreferenceFile.name().isEmpty()) {
+            error(messager, element.getEnclosingElement(), "Annotation @PreferenceFile must have non-empty name.");
+            return false;
+        }
+
         Types typeUtils = processingEnvironment.getTypeUtils();
         Elements elementUtils = processingEnvironment.getElementUtils();
         VariableElement variableElement = (VariableElement) element;
@@ -98,9 +131,104 @@ public class FieldValidator {
                 error(messager, element, "Annotation @StringPreference must be used with String or must have @Transform annotation as well.");
                 return false;
             }
+            if (element.getAnnotation(DoublePreference.class) != null
+                    && !isSameType(typeUtils, fieldMirror, fieldType(Double.class, elementUtils))) {
+                error(messager, element, "Annotation @DoublePreference must be used with double/Double or must have @Transform annotation as well.");
+                return false;
+            }
+            if (element.getAnnotation(StringSetPreference.class) != null
+                    && !isSameType(typeUtils, fieldMirror, typeUtils.getDeclaredType(
+                            elementUtils.getTypeElement(Set.class.getCanonicalName()),
+                            fieldType(String.class, elementUtils)))) {
+                error(messager, element, "Annotation @StringSetPreference must be used with Set<String> or must have @Transform annotation as well.");
+                return false;
+            }
+            if (element.getAnnotation(BytesPreference.class) != null
+                    && !isSameType(typeUtils, fieldMirror, typeUtils.getArrayType(typeUtils.getPrimitiveType(TypeKind.BYTE)))) {
+                error(messager, element, "Annotation @BytesPreference must be used with byte[] or must have @Transform annotation as well.");
+                return false;
+            }
+            if (element.getAnnotation(IntArrayPreference.class) != null
+                    && !isArrayOrList(typeUtils, elementUtils, fieldMirror, TypeKind.INT, Integer.class)) {
+                error(messager, element, "Annotation @IntArrayPreference must be used with int[]/List<Integer> or must have @Transform annotation as well.");
+                return false;
+            }
+            if (element.getAnnotation(LongArrayPreference.class) != null
+                    && !isArrayOrList(typeUtils, elementUtils, fieldMirror, TypeKind.LONG, Long.class)) {
+                error(messager, element, "Annotation @LongArrayPreference must be used with long[]/List<Long> or must have @Transform annotation as well.");
+                return false;
+            }
+            if (element.getAnnotation(FloatArrayPreference.class) != null
+                    && !isArrayOrList(typeUtils, elementUtils, fieldMirror, TypeKind.FLOAT, Float.class)) {
+                error(messager, element, "Annotation @FloatArrayPreference must be used with float[]/List<Float> or must have @Transform annotation as well.");
+                return false;
+            }
+            if (element.getAnnotation(DoubleArrayPreference.class) != null
+                    && !isArrayOrList(typeUtils, elementUtils, fieldMirror, TypeKind.DOUBLE, Double.class)) {
+                error(messager, element, "Annotation @DoubleArrayPreference must be used with double[]/List<Double> or must have @Transform annotation as well.");
+                return false;
+            }
+        }
+
+        return !modifiers.contains(Modifier.PRIVATE) || MethodValidator.hasGetterAndSetter(element, methodIndex, messager, typeUtils);
+    }
+
+    /**
+     * Reports an error on every field which has a generated method with the same name and parameters as another method
+     * of generated class, for example a lazy field 'preferenceRepository' or fields 'foo' and 'fooStream' when
+     * the first one is observed and the second one is lazy. Generated class would not compile otherwise.
+     * @param vars Valid annotated fields of a single class.
+     * @return true if methods of all fields are unique.
+     */
+    public static boolean hasUniqueMethods(List<PrefField> vars, Messager messager) {
+        Map<String, Integer> methodCounts = new HashMap<>();
+        for (String method : GENERATED_METHODS) {
+            methodCounts.put(method, 1);
+        }
+        for (PrefField var : vars) {
+            for (String method : getFieldMethods(var)) {
+                methodCounts.merge(method, 1, Integer::sum);
+            }
         }
+        boolean unique = true;
+        for (PrefField var : vars) {
+            for (String method : getFieldMethods(var)) {
+                if (methodCounts.get(method) > 1) {
+                    error(messager, var.getElement(), "Method '" + method + "' generated for field '" + var.getFieldName()
+                            + "' clashes with another method of generated class, field has to be renamed.");
+                    unique = false;
+                    break;
+                }
+            }
+        }
+        return unique;
+    }
+
+    private static List<String> getFieldMethods(PrefField var) {
+        String name = var.getFieldNameCapitalized();
+        List<String> methods = new ArrayList<>(5);
+        methods.add("read" + name + "()");
+        methods.add("write" + name + "()");
+        if (var.isLazy()) {
+            methods.add("get" + name + "()");
+            methods.add("set" + name + "(value)");
+        }
+        if (var.isObservable()) {
+            methods.add("get" + name + "Stream()");
+        }
+        return methods;
+    }
 
-        return !modifiers.contains(Modifier.PRIVATE) || MethodValidator.hasGetterAndSetter(element, messager, typeUtils);
+    private static boolean isArrayOrList(Types typeUtils,
+                                         Elements elementUtils,
+                                         TypeMirror fieldMirror,
+                                         TypeKind elementKind,
+                                         Class<?> boxedClass) {
+        TypeMirror arrayType = typeUtils.getArrayType(typeUtils.getPrimitiveType(elementKind));
+        TypeMirror listType = typeUtils.getDeclaredType(
+                elementUtils.getTypeElement(List.class.getCanonicalName()),
+                fieldType(boxedClass, elementUtils));
+        return isSameType(typeUtils, fieldMirror, arrayType) || isSameType(typeUtils, fieldMirror, listType);
     }
 
     private static TypeMirror getTypeMirror(Transform transformAnnotation) {
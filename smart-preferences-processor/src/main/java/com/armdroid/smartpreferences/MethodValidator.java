@@ -1,16 +1,12 @@
 package com.armdroid.smartpreferences;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 import javax.annotation.processing.Messager;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
-import javax.lang.model.type.PrimitiveType;
 import javax.lang.model.type.TypeKind;
-import javax.lang.model.type.TypeMirror;
-import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Types;
 
 import static com.armdroid.smartpreferences.TypeUtils.isSameType;
@@ -18,19 +14,11 @@ import static javax.tools.Diagnostic.Kind.ERROR;
 
 public class MethodValidator {
 
-    public static String tryGetSubscribeMethodName(Element variable, Types typeUtils, Messager messager) {
-        Element clazz = variable.getEnclosingElement();
+    public static String tryGetSubscribeMethodName(Element variable, ClassMethodIndex methodIndex, Types typeUtils, Messager messager) {
         Observe observe = variable.getAnnotation(Observe.class);
         String tag = variable.getSimpleName().toString();
         if (observe != null) {
-            List<ExecutableElement> methods = ElementFilter
-                    .methodsIn(clazz.getEnclosedElements())
-                    .stream()
-                    .filter(executableElement -> {
-                        Subscribe subscribe = executableElement.getAnnotation(Subscribe.class);
-                        return subscribe != null && subscribe.tag().equals(tag);
-                    })
-                    .collect(Collectors.toList());
+            List<ExecutableElement> methods = methodIndex.getSubscribers(tag);
             if (methods.size() > 1) {
                 error(messager, methods.get(0), "Found multiple methods with tag '" + tag +
                         "' and annotation @Subscribe");
@@ -58,27 +46,23 @@ public class MethodValidator {
         return "";
     }
 
-    public static boolean hasGetterAndSetter(Element element, Messager messager, Types typeUtils) {
+    public static boolean hasGetterAndSetter(Element element, ClassMethodIndex methodIndex, Messager messager, Types typeUtils) {
         String fieldName = element.getSimpleName().toString();
         String fieldNameCap = fieldName.substring(0, 1).toUpperCase() + fieldName.substring(1);
-        if (ElementFilter.methodsIn(element.getEnclosingElement().getEnclosedElements())
+        long getterCount = methodIndex.getMethods("get" + fieldNameCap)
                 .stream()
-                .filter(method -> {
-                    boolean isPrivate = method.getModifiers().contains(Modifier.PRIVATE);
-                    String methodName = method.getSimpleName().toString();
-
-                    if (methodName.equals("get" + fieldNameCap)
-                            && !isPrivate
-                            && method.getParameters().isEmpty()) {
-                        return isSameType(typeUtils, method.getReturnType(), element.asType());
-                    } else if (methodName.equals("set" + fieldNameCap)
-                            && !isPrivate
-                            && method.getParameters().size() == 1
-                            && method.getReturnType().getKind() == TypeKind.VOID) {
-                        return isSameType(typeUtils, method.getParameters().get(0).asType(), element.asType());
-                    }
-                    return false;
-                }).toArray().length != 2) {
+                .filter(method -> !method.getModifiers().contains(Modifier.PRIVATE)
+                        && method.getParameters().isEmpty()
+                        && isSameType(typeUtils, method.getReturnType(), element.asType()))
+                .count();
+        long setterCount = methodIndex.getMethods("set" + fieldNameCap)
+                .stream()
+                .filter(method -> !method.getModifiers().contains(Modifier.PRIVATE)
+                        && method.getParameters().size() == 1
+                        && method.getReturnType().getKind() == TypeKind.VOID
+                        && isSameType(typeUtils, method.getParameters().get(0).asType(), element.asType()))
+                .count();
+        if (getterCount + setterCount != 2) {
             error(messager, element, "Field with @***Preference annotation can be private only if enclosing class has public or protected getter and setter for that field");
             return false;
         }
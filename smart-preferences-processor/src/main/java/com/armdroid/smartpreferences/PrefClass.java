@@ -12,18 +12,25 @@ public class PrefClass implements Type {
     private final String simpleName;
     private final String typeName;
     private final String classPackageName;
+    private final String preferenceFileName;
+    private final TypeElement element;
 
     protected PrefClass(Element element) {
         TypeElement typeElement = (TypeElement) element;
+        this.element = typeElement;
         this.simpleName = typeElement.getSimpleName().toString();
         this.typeName = typeElement.getQualifiedName().toString();
         this.classPackageName = typeName.substring(0, typeName.lastIndexOf(simpleName) - 1);
+        PreferenceFile preferenceFile = typeElement.getAnnotation(PreferenceFile.class);
+        this.preferenceFileName = preferenceFile != null ? preferenceFile.name() : null;
     }
 
     private PrefClass(String simpleName, String typeName) {
         this.simpleName = simpleName;
         this.typeName = typeName;
         this.classPackageName = typeName.substring(0, typeName.lastIndexOf(simpleName) - 1);
+        this.preferenceFileName = null;
+        this.element = null;
     }
 
     public String getSimpleName() {
@@ -42,6 +49,21 @@ public class PrefClass implements Type {
         return ClassName.get(classPackageName, simpleName);
     }
 
+    /**
+     * @return Name of preferences file set with {@link PreferenceFile} or null if default file is used.
+     */
+    public String getPreferenceFileName() {
+        return preferenceFileName;
+    }
+
+    /**
+     * @return Annotated class element, the only originating element of the generated class, or null for
+     * {@link #getGeneratedClass()}.
+     */
+    public TypeElement getElement() {
+        return element;
+    }
+
     @Override
     public String getTypeName() {
         return typeName;
@@ -4,20 +4,27 @@ import java.lang.annotation.Annotation;
 import java.util.List;
 
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.Modifier;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
 import javax.lang.model.type.MirroredTypeException;
 import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
 import javax.lang.model.util.Elements;
 import javax.lang.model.util.Types;
 
 public class PrefField {
 
+    private final Element element;
     private final String fieldName;
     private final String preferenceName;
     private final Object defaultValue;
+    private final PreferenceType preferenceType;
     private final boolean isObservable;
+    private final boolean isUnchangedValueSkipped;
     private final TypeMirror transformer;
     private final TypeMirror typeParam1;
     private final TypeMirror typeParam2;
@@ -26,6 +33,10 @@ public class PrefField {
     private final int typeArgumentsSize;
     private final boolean isPrivate;
     private final boolean isList;
+    private final boolean isDecodedValueCached;
+    private final String preferenceFileName;
+    private final boolean isLazy;
+    private final boolean isReadCastNeeded;
 
     protected PrefField(Element element,
                         Class<? extends Annotation> clazz,
@@ -33,24 +44,58 @@ public class PrefField {
                         Types types,
                         Elements elements) {
         Annotation annotation = element.getAnnotation(clazz);
+        this.element = element;
         this.fieldName = element.getSimpleName().toString();
         this.subscribeMethodName = subscribeMethodName;
         String preferenceName;
         if (annotation instanceof IntPreference) {
             preferenceName = ((IntPreference) annotation).named();
             this.defaultValue = ((IntPreference) annotation).defaultValue();
+            this.preferenceType = PreferenceType.INT;
         } else if (annotation instanceof StringPreference) {
             preferenceName = ((StringPreference) annotation).named();
             this.defaultValue = ((StringPreference) annotation).defaultValue();
+            this.preferenceType = PreferenceType.STRING;
         } else if (annotation instanceof FloatPreference) {
             preferenceName = ((FloatPreference) annotation).named();
             this.defaultValue = ((FloatPreference) annotation).defaultValue();
+            this.preferenceType = PreferenceType.FLOAT;
         } else if (annotation instanceof LongPreference) {
             preferenceName = ((LongPreference) annotation).named();
             this.defaultValue = ((LongPreference) annotation).defaultValue();
+            this.preferenceType = PreferenceType.LONG;
+        } else if (annotation instanceof DoublePreference) {
+            preferenceName = ((DoublePreference) annotation).named();
+            this.defaultValue = ((DoublePreference) annotation).defaultValue();
+            this.preferenceType = PreferenceType.DOUBLE;
+        } else if (annotation instanceof StringSetPreference) {
+            preferenceName = ((StringSetPreference) annotation).named();
+            this.defaultValue = ((StringSetPreference) annotation).defaultValue();
+            this.preferenceType = PreferenceType.STRING_SET;
+        } else if (annotation instanceof BytesPreference) {
+            preferenceName = ((BytesPreference) annotation).named();
+            this.defaultValue = null;
+            this.preferenceType = PreferenceType.BYTES;
+        } else if (annotation instanceof IntArrayPreference) {
+            preferenceName = ((IntArrayPreference) annotation).named();
+            this.defaultValue = ((IntArrayPreference) annotation).defaultValue();
+            this.preferenceType = PreferenceType.INT_ARRAY;
+        } else if (annotation instanceof LongArrayPreference) {
+            preferenceName = ((LongArrayPreference) annotation).named();
+            this.defaultValue = ((LongArrayPreference) annotation).defaultValue();
+            this.preferenceType = PreferenceType.LONG_ARRAY;
+        } else if (annotation instanceof FloatArrayPreference) {
+            preferenceName = ((FloatArrayPreference) annotation).named();
+            this.defaultValue = ((FloatArrayPreference) annotation).defaultValue();
+            this.preferenceType = PreferenceType.FLOAT_ARRAY;
+        } else if (annotation instanceof DoubleArrayPreference) {
+            preferenceName = ((DoubleArrayPreference) annotation).named();
+            this.defaultValue = ((DoubleArrayPreference) annotation).defaultValue();
+            this.preferenceType = PreferenceType.DOUBLE_ARRAY;
         } else {
             preferenceName = ((BooleanPreference) annotation).named();
             this.defaultValue = ((BooleanPreference) annotation).defaultValue();
+            this.preferenceType = PreferenceType.BOOLEAN;
         }
         if (preferenceName.isEmpty()) {
             this.preferenceName = fieldName;
@@ -59,10 +104,23 @@ public class PrefField {
         }
 
         Transform transformAnnotation = element.getAnnotation(Transform.class);
-        isObservable =  element.getAnnotation(Observe.class) != null;
+        Observe observeAnnotation = element.getAnnotation(Observe.class);
+        isObservable = observeAnnotation != null;
+        isUnchangedValueSkipped = observeAnnotation != null && observeAnnotation.skipUnchanged();
         transformer = transformAnnotation != null ? getTransformer(transformAnnotation) : null;
         typeParam1 = transformAnnotation != null ? getTypeParam1(transformAnnotation) : null;
         typeParam2 = transformAnnotation != null ? getTypeParam2(transformAnnotation) : null;
+        isDecodedValueCached = transformAnnotation != null && transformAnnotation.cacheDecoded();
+        PreferenceFile preferenceFile = element.getAnnotation(PreferenceFile.class);
+        if (preferenceFile == null) {
+            preferenceFile = element.getEnclosingElement().getAnnotation(PreferenceFile.class);
+        }
+        preferenceFileName = preferenceFile != null ? preferenceFile.name() : null;
+        Lazy lazy = element.getAnnotation(Lazy.class);
+        if (lazy == null) {
+            lazy = element.getEnclosingElement().getAnnotation(Lazy.class);
+        }
+        isLazy = lazy != null && lazy.value();
         fieldType = element.asType();
         isPrivate = element.getModifiers().contains(Modifier.PRIVATE);
         isList = types.isAssignable(types.erasure(fieldType), TypeUtils.fieldType(List.class, elements));
@@ -70,9 +128,39 @@ public class PrefField {
         if (transformer != null) {
             TypeElement typeElement = (TypeElement) types.asElement(transformer);
             typeArgumentsSize = typeElement == null ? 0 : typeElement.getTypeParameters().size();
+            isReadCastNeeded = isReadCastNeeded(typeElement, types, elements);
         } else {
             typeArgumentsSize = 0;
+            isReadCastNeeded = false;
+        }
+    }
+
+    /**
+     * @return false if read method of transformer, parameterized with type parameters of {@link Transform}, already
+     * returns type of the field, so that its result needs no cast.
+     */
+    private boolean isReadCastNeeded(TypeElement typeElement, Types types, Elements elements) {
+        if (typeElement == null) {
+            return true;
+        }
+        DeclaredType transformerType;
+        if (typeArgumentsSize == 0) {
+            transformerType = types.getDeclaredType(typeElement);
+        } else if (typeArgumentsSize == 1 && typeParam1 != null) {
+            transformerType = types.getDeclaredType(typeElement, typeParam1);
+        } else if (typeArgumentsSize == 2 && typeParam1 != null && typeParam2 != null) {
+            transformerType = types.getDeclaredType(typeElement, typeParam1, typeParam2);
+        } else {
+            return true;
+        }
+        String readMethodName = isList ? "convertReadList" : "convertRead";
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(typeElement))) {
+            if (method.getSimpleName().contentEquals(readMethodName) && method.getParameters().size() == 1) {
+                TypeMirror returnType = ((ExecutableType) types.asMemberOf(transformerType, method)).getReturnType();
+                return !types.isSameType(returnType, fieldType);
+            }
         }
+        return true;
     }
 
     private TypeMirror getTransformer(Transform transformAnnotation) {
@@ -102,6 +190,10 @@ public class PrefField {
         }
     }
 
+    public Element getElement() {
+        return element;
+    }
+
     public String getFieldName() {
         return fieldName;
     }
@@ -114,11 +206,17 @@ public class PrefField {
         return preferenceName;
     }
 
+    /**
+     * @return Default value as literal of its type, array of default values for {@link PreferenceType#STRING_SET}
+     * and primitive array types, or null for {@link PreferenceType#BYTES}.
+     */
     public Object getDefaultValue() {
         if (defaultValue instanceof Long) {
             return defaultValue + "L";
         } else if (defaultValue instanceof Float) {
             return defaultValue + "F";
+        } else if (defaultValue instanceof Double) {
+            return defaultValue + "D";
         }
         return defaultValue;
     }
@@ -130,6 +228,10 @@ public class PrefField {
         return "$L";
     }
 
+    public PreferenceType getPreferenceType() {
+        return preferenceType;
+    }
+
     public TypeMirror getTransformer() {
         return transformer;
     }
@@ -142,6 +244,10 @@ public class PrefField {
         return isObservable;
     }
 
+    public boolean isUnchangedValueSkipped() {
+        return isUnchangedValueSkipped;
+    }
+
     public String getSubscribeMethodName() {
         return subscribeMethodName;
     }
@@ -165,4 +271,35 @@ public class PrefField {
     public boolean isList() {
         return isList;
     }
+
+    /**
+     * @return true if field is a list of boxed values stored as primitive array, i.e. List&lt;Integer&gt; with
+     * {@link IntArrayPreference}.
+     */
+    public boolean isPrimitiveList() {
+        return isList && transformer == null;
+    }
+
+    public boolean isDecodedValueCached() {
+        return isDecodedValueCached;
+    }
+
+    /**
+     * @return Name of preferences file set with {@link PreferenceFile} on the field or its class,
+     * or null if default file is used.
+     */
+    public String getPreferenceFileName() {
+        return preferenceFileName;
+    }
+
+    public boolean isLazy() {
+        return isLazy;
+    }
+
+    /**
+     * @return true if value returned by read method of transformer has to be cast to type of the field.
+     */
+    public boolean isReadCastNeeded() {
+        return isReadCastNeeded;
+    }
 }
@@ -1,6 +1,9 @@
 package com.armdroid.smartpreferences;
 
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.ArrayTypeName;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
@@ -8,8 +11,20 @@ import com.squareup.javapoet.ParameterizedTypeName;
 import com.squareup.javapoet.TypeName;
 import com.squareup.javapoet.TypeSpec;
 
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import javax.lang.model.element.Modifier;
 
@@ -18,18 +33,35 @@ public class PreferenceClassCreator {
     private static final String targetClassFieldName = "mTargetClass";
 
     private static final String repoFieldName = "mPreferenceRepository";
+    private static final String repoVariableName = "repository";
     private static final String repoClass = "PreferenceRepository";
-    private static final String repoFieldGetter = "PreferenceRepository.getInstance()";
+
+    private static final String editorVariableName = "editor";
+    private static final String editorClass = "PreferenceEditor";
 
     private static final String libPackageName = "com.armdroid.smartpreferences";
-    private static int controlFlowCounter = 0;
+    private static final String observedKeysFieldName = "OBSERVED_KEYS";
+    private static final String readKeysFieldName = "READ_KEYS";
+    private static final String snapshotVariableName = "snapshot";
+    private static final String snapshotClass = "PreferenceSnapshot";
+    private static final String lazyKeysFieldName = "LAZY_KEYS";
+    private static final String lazyFieldInvalidatorFieldName = "mLazyFieldInvalidator";
+    private static final String streamClass = "PreferenceStream";
+    private static final String primitiveArraysClass = "PrimitiveArrays";
+    private static final String decodeExecutorFieldName = "mChangeDecodeExecutor";
+    private static final String deliveryExecutorFieldName = "mChangeDeliveryExecutor";
+    private static final String syncLockFieldName = "mSyncLock";
+    private static Map<TypeName, String> transformerFieldNames;
+    private static List<String> preferenceFileNames;
 
 
     public static JavaFile create(PrefClass clazz, List<PrefField> vars) {
         PrefClass genClass = clazz.getGeneratedClass();
+        transformerFieldNames = getTransformerFieldNames(vars);
+        preferenceFileNames = getPreferenceFileNames(clazz, vars);
 
         ClassName targetClassName = clazz.getClassName();
-        ClassName preferenceListenerClassName = ClassName.get("android.content.SharedPreferences", "OnSharedPreferenceChangeListener");
+        ClassName preferenceListenerClassName = ClassName.get(libPackageName, "PreferenceChangeListener");
         ClassName preferenceRepositoryClassName = ClassName.get(libPackageName, repoClass);
         ClassName preferenceBinder = ClassName.get(libPackageName, "PreferenceBinder");
 
@@ -39,87 +71,301 @@ public class PreferenceClassCreator {
                 Modifier.PRIVATE)
                 .build();
 
-        FieldSpec preferenceRepositoryField = FieldSpec.builder(
-                preferenceRepositoryClassName,
-                repoFieldName,
-                Modifier.PRIVATE)
-                .build();
-
         TypeSpec.Builder classTypeBuilder = TypeSpec.classBuilder(genClass.getSimpleName())
                 .addSuperinterface(preferenceBinder)
                 .addSuperinterface(preferenceListenerClassName)
-                .addModifiers(Modifier.FINAL, Modifier.PUBLIC)
-                .addField(targetClassField)
-                .addField(preferenceRepositoryField)
-                .addMethod(getStaticReadMethod(clazz))
-                .addMethod(getSaticWriteMethod(clazz))
+                .addModifiers(Modifier.FINAL, Modifier.PUBLIC);
+
+        for (Map.Entry<TypeName, String> transformer : transformerFieldNames.entrySet()) {
+            classTypeBuilder.addField(getTransformerField(transformer.getKey(), transformer.getValue()));
+        }
+
+        for (int i = 0; i < preferenceFileNames.size(); i++) {
+            classTypeBuilder.addField(getObservedKeysField(i, vars));
+            classTypeBuilder.addField(getReadKeysField(i, vars));
+        }
+
+        for (int i = 0; i < preferenceFileNames.size(); i++) {
+            if (hasLazyFields(i, vars)) {
+                classTypeBuilder.addField(getLazyKeysField(i, vars));
+            }
+        }
+
+        classTypeBuilder.addField(targetClassField);
+
+        for (int i = 0; i < preferenceFileNames.size(); i++) {
+            classTypeBuilder.addField(preferenceRepositoryClassName, getRepositoryFieldName(i), Modifier.PRIVATE);
+        }
+
+        for (PrefField var : vars) {
+            classTypeBuilder.addField(getSyncedValueType(var), getSyncedValueFieldName(var), Modifier.PRIVATE);
+            classTypeBuilder.addField(boolean.class, getSyncedFlagFieldName(var), Modifier.PRIVATE);
+            if (var.isLazy()) {
+                classTypeBuilder.addField(boolean.class, getLoadedFlagFieldName(var), Modifier.PRIVATE, Modifier.VOLATILE);
+                classTypeBuilder.addField(boolean.class, getUnsavedFlagFieldName(var), Modifier.PRIVATE, Modifier.VOLATILE);
+            }
+            if (var.isObservable()) {
+                classTypeBuilder.addField(getStreamField(var));
+            }
+            if (hasSyncVersion(var)) {
+                classTypeBuilder.addField(int.class, getSyncVersionFieldName(var), Modifier.PRIVATE);
+            }
+        }
+
+        // guards synced values, flags and versions, which are used by threads reading and writing fields and by
+        // threads handling changes
+        classTypeBuilder.addField(FieldSpec.builder(Object.class, syncLockFieldName, Modifier.PRIVATE, Modifier.FINAL)
+                .initializer("new $T()", Object.class)
+                .build());
+        classTypeBuilder.addField(getSerialExecutorField(decodeExecutorFieldName));
+        classTypeBuilder.addField(getSerialExecutorField(deliveryExecutorFieldName));
+
+        if (vars.stream().anyMatch(PrefField::isLazy)) {
+            classTypeBuilder.addField(getLazyFieldInvalidatorField(vars));
+        }
+
+        classTypeBuilder
+                .addMethod(getStaticReadMethod(clazz, vars))
+                .addMethod(getSaticWriteMethod(clazz, vars))
                 .addMethod(getStaticBindMethod(clazz))
                 .addMethod(getStaticReadAndBindMethod(clazz))
                 .addMethod(getStaticWriteAndBindMethod(clazz))
+                .addMethod(getStaticAsyncMethod(clazz, "bindAsync", "bind"))
+                .addMethod(getStaticAsyncMethod(clazz, "readAndBindAsync", "readAndBind"))
                 .addMethod(getConstructor(targetClassName))
                 .addMethod(getPreferenceChangeListenerMethod(vars))
+                .addMethod(getAsyncPreferenceChangeListenerMethod(vars))
+                .addMethod(getSetChangeExecutorsMethod())
                 .addMethod(getReadAllMethod(vars))
                 .addMethod(getWriteAllMethod(vars))
-                .addMethod(getObserveChangesMethod())
-                .addMethod(getStopObserveChangesMethod())
-                .addMethod(getUnbindMethod())
+                .addMethod(getObserveChangesMethod(vars))
+                .addMethod(getStopObserveChangesMethod(vars))
+                .addMethod(getUnbindMethod(vars))
                 .addMethod(getPreferenceRepositoryMethod())
                 .addMethod(getSetTypeDefaultsMethod(vars));
 
         for (PrefField var : vars) {
             classTypeBuilder.addMethod(getFieldReadMethod(var, clazz));
             classTypeBuilder.addMethod(getFieldWriteMethod(var, clazz));
+            if (var.isDecodedValueCached()) {
+                classTypeBuilder.addMethod(getFieldDecodeMethod(var));
+            }
+            if (var.isLazy()) {
+                classTypeBuilder.addMethod(getLazyFieldGetMethod(var, clazz));
+                classTypeBuilder.addMethod(getLazyFieldSetMethod(var, clazz));
+            }
+            if (var.isObservable()) {
+                classTypeBuilder.addMethod(getStreamMethod(var, clazz));
+            }
         }
 
+        // the annotated class is the only input of generated class, which keeps the processor isolating
+        classTypeBuilder.addOriginatingElement(clazz.getElement());
+
         return JavaFile.builder(genClass.getClassPackageName(), classTypeBuilder.build())
                 .addFileComment("This is a generated file. DO NOT MODIFY!")
                 .build();
     }
 
-    private static MethodSpec getStaticReadMethod(PrefClass targetClass) {
+    private static Map<TypeName, String> getTransformerFieldNames(List<PrefField> vars) {
+        Map<TypeName, String> fieldNames = new LinkedHashMap<>();
+        Set<String> usedNames = new HashSet<>();
+        for (PrefField var : vars) {
+            if (var.getTransformer() == null) {
+                continue;
+            }
+            TypeName converterType = getConverterTypeParameters(var);
+            if (fieldNames.containsKey(converterType)) {
+                continue;
+            }
+            StringBuilder nameBuilder = new StringBuilder(toConstantName(ClassName.get(var.getTransformer()).toString()));
+            if (var.getTypeArgumentsSize() > 0) {
+                nameBuilder.append('_').append(toConstantName(TypeName.get(var.getTypeParam1()).toString()));
+            }
+            if (var.getTypeArgumentsSize() > 1) {
+                nameBuilder.append('_').append(toConstantName(TypeName.get(var.getTypeParam2()).toString()));
+            }
+            String name = nameBuilder.toString();
+            int suffix = 1;
+            while (!usedNames.add(name)) {
+                name = nameBuilder.toString() + "_" + suffix++;
+            }
+            fieldNames.put(converterType, name);
+        }
+        return fieldNames;
+    }
+
+    private static List<String> getPreferenceFileNames(PrefClass clazz, List<PrefField> vars) {
+        List<String> fileNames = new ArrayList<>();
+        fileNames.add(clazz.getPreferenceFileName());
+        for (PrefField var : vars) {
+            if (!fileNames.contains(var.getPreferenceFileName())) {
+                fileNames.add(var.getPreferenceFileName());
+            }
+        }
+        return fileNames;
+    }
+
+    private static String getIndexSuffix(int fileIndex) {
+        return fileIndex == 0 ? "" : String.valueOf(fileIndex);
+    }
+
+    private static String getRepositoryFieldName(int fileIndex) {
+        return repoFieldName + getIndexSuffix(fileIndex);
+    }
+
+    private static String getRepositoryFieldName(PrefField var) {
+        return getRepositoryFieldName(preferenceFileNames.indexOf(var.getPreferenceFileName()));
+    }
+
+    private static String getRepositoryVariableName(int fileIndex) {
+        return repoVariableName + getIndexSuffix(fileIndex);
+    }
+
+    private static CodeBlock getRepositoryInstance(int fileIndex) {
+        ClassName preferenceRepositoryClassName = ClassName.get(libPackageName, repoClass);
+        String fileName = preferenceFileNames.get(fileIndex);
+        if (fileName == null) {
+            return CodeBlock.of("$T.getInstance()", preferenceRepositoryClassName);
+        }
+        return CodeBlock.of("$T.getInstance($S)", preferenceRepositoryClassName, fileName);
+    }
+
+    private static String getObservedKeysFieldName(int fileIndex) {
+        return observedKeysFieldName + getIndexSuffix(fileIndex);
+    }
+
+    private static String getReadKeysFieldName(int fileIndex) {
+        return readKeysFieldName + getIndexSuffix(fileIndex);
+    }
+
+    private static String getSnapshotVariableName(int fileIndex) {
+        return snapshotVariableName + getIndexSuffix(fileIndex);
+    }
+
+    private static String getLazyKeysFieldName(int fileIndex) {
+        return lazyKeysFieldName + getIndexSuffix(fileIndex);
+    }
+
+    private static String getEditorVariableName(int fileIndex) {
+        return editorVariableName + getIndexSuffix(fileIndex);
+    }
+
+    private static List<PrefField> getFieldsOfFile(int fileIndex, List<PrefField> vars) {
+        String fileName = preferenceFileNames.get(fileIndex);
+        return vars.stream()
+                .filter(var -> fileName == null ? var.getPreferenceFileName() == null : fileName.equals(var.getPreferenceFileName()))
+                .collect(Collectors.toList());
+    }
+
+    private static String toConstantName(String qualifiedName) {
+        String simpleName = qualifiedName.substring(qualifiedName.lastIndexOf('.') + 1);
+        return simpleName.replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase();
+    }
+
+    private static FieldSpec getTransformerField(TypeName converterType, String fieldName) {
+        return FieldSpec.builder(converterType, fieldName, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .addJavadoc("Shared transformer instance, created once and reused by every read and write of this class.\n")
+                .initializer("new $T(){}", converterType)
+                .build();
+    }
+
+    private static MethodSpec getStaticReadMethod(PrefClass targetClass, List<PrefField> vars) {
         PrefClass genClass = targetClass.getGeneratedClass();
-        ClassName genClassName = ClassName.get(genClass.getClassPackageName(), genClass.getSimpleName());
-        return MethodSpec.methodBuilder("read")
+        String target = targetClass.getSimpleNameLowerCase();
+        MethodSpec.Builder readMethodBuilder = MethodSpec.methodBuilder("read")
                 .addJavadoc(
-                        "Creates instance of {@link $L}, reads values from preferences (see {@link $L#$L}) and removes binding." +
+                        "Reads values from preferences to fields of target class instance, like {@link $L#$L}, but without" +
+                        " creating instance of {@link $L}." +
                         " This is useful when preference values are to be read only once and no further actions are needed." +
                         "\n" +
-                        "@param target Instance of class {@link $L} to which generated class instance will be bound." +
+                        "@param target Instance of class {@link $L} whose fields are read." +
                         "\n",
                         genClass.getTypeName(),
-                        genClass.getTypeName(),
                         "readAll",
+                        genClass.getTypeName(),
                         targetClass.getTypeName())
                 .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
-                .addParameter(targetClass.getClassName(), targetClass.getSimpleNameLowerCase())
-                .addStatement("$T instance = new $T($L)", genClassName, genClassName, targetClass.getSimpleNameLowerCase())
-                .addStatement("instance.readAll()")
-                .addStatement("instance.unbind()")
-                .build();
+                .addParameter(targetClass.getClassName(), target);
+
+        // Fields are read straight from repositories, so there is no binder, synced state or listener to clean up.
+        ClassName preferenceRepositoryClassName = ClassName.get(libPackageName, repoClass);
+        ClassName preferenceSnapshotClassName = ClassName.get(libPackageName, snapshotClass);
+        List<PrefField> eagerVars = getEagerFields(vars);
+        for (int i = 0; i < preferenceFileNames.size(); i++) {
+            List<PrefField> fileVars = getFieldsOfFile(i, eagerVars);
+            if (fileVars.isEmpty()) {
+                continue;
+            }
+            readMethodBuilder
+                    .addStatement("$T $L = $L",
+                            preferenceRepositoryClassName,
+                            getRepositoryVariableName(i),
+                            getRepositoryInstance(i))
+                    .addStatement("$T $L = $L.snapshot($L)",
+                            preferenceSnapshotClassName,
+                            getSnapshotVariableName(i),
+                            getRepositoryVariableName(i),
+                            getReadKeysFieldName(i));
+            for (PrefField var : fileVars) {
+                setFieldValueStatement(var,
+                        target,
+                        getDecodedValue(var, getRepositoryVariableName(i), getPreferenceReadValue(var, getSnapshotVariableName(i))),
+                        readMethodBuilder);
+            }
+        }
+        return readMethodBuilder.build();
     }
 
-    private static MethodSpec getSaticWriteMethod(PrefClass targetClass) {
+    private static MethodSpec getSaticWriteMethod(PrefClass targetClass, List<PrefField> vars) {
         PrefClass genClass = targetClass.getGeneratedClass();
-        ClassName genClassName = ClassName.get(genClass.getClassPackageName(), genClass.getSimpleName());
-        return MethodSpec.methodBuilder("write")
+        String target = targetClass.getSimpleNameLowerCase();
+        ClassName preferenceEditorClassName = ClassName.get(libPackageName, editorClass);
+        MethodSpec.Builder writeMethodBuilder = MethodSpec.methodBuilder("write")
                 .addJavadoc(
-                        "Creates instance of {@link $L}, writes values to preferences (see {@link $L#$L}) and removes binding." +
-                        " This is useful when preference values are to be read only once and no further actions are needed." +
+                        "Writes values of fields of target class instance to preferences, like {@link $L#$L}, but without" +
+                        " creating instance of {@link $L}. As nothing is known about values written before, all fields are written." +
+                        " This is useful when preference values are to be written only once and no further actions are needed." +
                         "\n" +
-                        "@param target Instance of class {@link $L} to which generated class instance will be bound." +
+                        "@param target Instance of class {@link $L} whose fields are written." +
                         "\n",
                         genClass.getTypeName(),
-                        genClass.getTypeName(),
                         "writeAll",
+                        genClass.getTypeName(),
                         targetClass.getTypeName())
                 .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
-                .addParameter(targetClass.getClassName(), targetClass.getSimpleNameLowerCase())
-                .addStatement("$T instance = new $T($L)", genClassName, genClassName, targetClass.getSimpleNameLowerCase())
-                .addStatement("instance.writeAll()")
-                .addStatement("instance.unbind()")
-                .build();
+                .addParameter(targetClass.getClassName(), target);
+
+        List<PrefField> eagerVars = getEagerFields(vars);
+        for (int i = 0; i < preferenceFileNames.size(); i++) {
+            List<PrefField> fileVars = getFieldsOfFile(i, eagerVars);
+            if (fileVars.isEmpty()) {
+                continue;
+            }
+            writeMethodBuilder.addStatement("$T $L = $L.edit()",
+                    preferenceEditorClassName,
+                    getEditorVariableName(i),
+                    getRepositoryInstance(i));
+            for (PrefField var : fileVars) {
+                writeMethodBuilder.addStatement("$L.put$L($S, $L)",
+                        getEditorVariableName(i),
+                        var.getPreferenceType().getAccessorSuffix(),
+                        var.getPreferenceName(),
+                        getPreferenceWriteValue(var, target));
+            }
+            writeMethodBuilder.addStatement("$L.apply()", getEditorVariableName(i));
+        }
+        return writeMethodBuilder.build();
+    }
+
+    /**
+     * Lazy fields are skipped by static methods just like by readAll and writeAll of unread fields.
+     */
+    private static List<PrefField> getEagerFields(List<PrefField> vars) {
+        return vars.stream().filter(var -> !var.isLazy()).collect(Collectors.toList());
     }
 
+
     private static MethodSpec getStaticBindMethod(PrefClass targetClass) {
         PrefClass genClass = targetClass.getGeneratedClass();
         ClassName genClassName = ClassName.get(genClass.getClassPackageName(), genClass.getSimpleName());
@@ -197,50 +443,321 @@ public class PreferenceClassCreator {
                 .build();
     }
 
+    private static MethodSpec getStaticAsyncMethod(PrefClass targetClass, String methodName, String blockingMethodName) {
+        PrefClass genClass = targetClass.getGeneratedClass();
+        ClassName genClassName = ClassName.get(genClass.getClassPackageName(), genClass.getSimpleName());
+        ClassName smartPreferencesClassName = ClassName.get(libPackageName, "SmartPreferences");
+        TypeName futureTypeName = ParameterizedTypeName.get(ClassName.get(libPackageName, "PreferenceFuture"), genClassName);
+        TypeSpec task = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(ParameterizedTypeName.get(ClassName.get(Callable.class), genClassName))
+                .addMethod(MethodSpec.methodBuilder("call")
+                        .addAnnotation(Override.class)
+                        .addModifiers(Modifier.PUBLIC)
+                        .returns(genClassName)
+                        .addStatement("return $L($L)", blockingMethodName, targetClass.getSimpleNameLowerCase())
+                        .build())
+                .build();
+        return MethodSpec.methodBuilder(methodName)
+                .addJavadoc(
+                        "Non-blocking variant of {@link #$L($L)}. It runs once preferences are loaded (see" +
+                        " {@link $T#whenReady()}) on a background thread, so target class instance should not be" +
+                        " used until returned future is completed." +
+                        "\n" +
+                        "@param target Instance of class {@link $L} to which generated class instance will be bound." +
+                        "\n" +
+                        "@return Future which is completed with instance of this class." +
+                        "\n",
+                        blockingMethodName,
+                        targetClass.getSimpleName(),
+                        smartPreferencesClassName,
+                        targetClass.getTypeName())
+                .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+                .addParameter(targetClass.getClassName(), targetClass.getSimpleNameLowerCase(), Modifier.FINAL)
+                .returns(futureTypeName)
+                .addStatement("return $T.callWhenReady($L)", smartPreferencesClassName, task)
+                .build();
+    }
+
     private static MethodSpec getConstructor(ClassName targetClassName) {
-        return MethodSpec.constructorBuilder()
+        MethodSpec.Builder constructorBuilder = MethodSpec.constructorBuilder()
                 .addModifiers(Modifier.PRIVATE)
                 .addParameter(targetClassName, "target")
-                .addStatement("$L = target", targetClassFieldName)
-                .addStatement("$L = $L", repoFieldName, repoFieldGetter)
-                .build();
+                .addStatement("$L = target", targetClassFieldName);
+        for (int i = 0; i < preferenceFileNames.size(); i++) {
+            constructorBuilder.addStatement("$L = $L", getRepositoryFieldName(i), getRepositoryInstance(i));
+        }
+        return constructorBuilder.build();
     }
 
-    private static MethodSpec getPreferenceChangeListenerMethod(List<PrefField> vars) {
-        List<PrefField> observables = vars
+    private static Map<String, List<PrefField>> getFieldsByPreferenceName(List<PrefField> vars, Predicate<PrefField> filter) {
+        Map<String, List<PrefField>> fields = new LinkedHashMap<>();
+        for (PrefField var : vars) {
+            if (filter.test(var)) {
+                fields.computeIfAbsent(var.getPreferenceName(), key -> new ArrayList<>()).add(var);
+            }
+        }
+        return fields;
+    }
+
+    private static Map<String, List<PrefField>> getObservablesByPreferenceName(List<PrefField> vars) {
+        return getFieldsByPreferenceName(vars, PrefField::isObservable);
+    }
+
+    private static FieldSpec getObservedKeysField(int fileIndex, List<PrefField> vars) {
+        return getKeysField(getObservedKeysFieldName(fileIndex), getObservablesByPreferenceName(getFieldsOfFile(fileIndex, vars)));
+    }
+
+    private static FieldSpec getReadKeysField(int fileIndex, List<PrefField> vars) {
+        return getKeysField(getReadKeysFieldName(fileIndex), getFieldsByPreferenceName(getFieldsOfFile(fileIndex, vars), var -> !var.isLazy()));
+    }
+
+    private static FieldSpec getLazyKeysField(int fileIndex, List<PrefField> vars) {
+        return getKeysField(getLazyKeysFieldName(fileIndex), getFieldsByPreferenceName(getFieldsOfFile(fileIndex, vars), PrefField::isLazy));
+    }
+
+    private static boolean hasLazyFields(int fileIndex, List<PrefField> vars) {
+        return getFieldsOfFile(fileIndex, vars).stream().anyMatch(PrefField::isLazy);
+    }
+
+    private static FieldSpec getKeysField(String fieldName, Map<String, List<PrefField>> fieldsByPreferenceName) {
+        List<CodeBlock> keys = fieldsByPreferenceName
+                .keySet()
                 .stream()
-                .filter(PrefField::isObservable)
+                .map(key -> CodeBlock.of("$S", key))
                 .collect(Collectors.toList());
+        return FieldSpec.builder(String[].class, fieldName, Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+                .initializer("{$L}", CodeBlock.join(keys, ", "))
+                .build();
+    }
 
-        ClassName preferenceClassName = ClassName.get("android.content", "SharedPreferences");
+    private static MethodSpec getPreferenceChangeListenerMethod(List<PrefField> vars) {
+        ClassName preferenceRepositoryClassName = ClassName.get(libPackageName, repoClass);
 
-        MethodSpec.Builder preferenceChangeListenerMethodBuilder = MethodSpec.methodBuilder("onSharedPreferenceChanged")
+        MethodSpec decodeMethod = MethodSpec.methodBuilder("run")
                 .addAnnotation(Override.class)
                 .addModifiers(Modifier.PUBLIC)
-                .addParameter(preferenceClassName ,"prefs")
-                .addParameter(String.class, "key");
+                .addStatement("onPreferenceChangedAsync(repository, key)")
+                .build();
+        TypeSpec decodeTask = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(Runnable.class)
+                .addMethod(decodeMethod)
+                .build();
 
-        controlFlowCounter = 0;
-        observables.forEach(prefField -> {
-            preferenceChangeListenerMethodBuilder.beginControlFlow("$L (key.equals($S))",
-                    controlFlowCounter == 0 ? "if" : "else if",
-                    prefField.getPreferenceName());
-            setSaveOldValueStatement(prefField, preferenceChangeListenerMethodBuilder);
-            setPreferenceReadStatement(prefField, preferenceChangeListenerMethodBuilder);
-            setUpdateMethodCallStatement(prefField, preferenceChangeListenerMethodBuilder);
-            preferenceChangeListenerMethodBuilder.endControlFlow();
-            controlFlowCounter++;
-        });
+        MethodSpec.Builder preferenceChangeListenerMethodBuilder = MethodSpec.methodBuilder("onPreferenceChanged")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(preferenceRepositoryClassName, "repository", Modifier.FINAL)
+                .addParameter(String.class, "key", Modifier.FINAL)
+                // changes pending on executors are handled first, so that changes are not reordered when executors are unset
+                .beginControlFlow("if (!$L.isInline() || !$L.isInline())", decodeExecutorFieldName, deliveryExecutorFieldName)
+                .addStatement("$L.execute($L)", decodeExecutorFieldName, decodeTask)
+                .addStatement("return")
+                .endControlFlow();
 
+        setPreferenceChangeStatement(vars, PrefField::isObservable, (prefField, methodBuilder) -> {
+            if (!prefField.isUnchangedValueSkipped()) {
+                setSaveOldValueStatement(prefField, methodBuilder);
+                setPreferenceReadStatement(prefField, methodBuilder);
+                setUpdateMethodCallStatement(prefField, methodBuilder);
+                methodBuilder.addStatement("$L.emit($L)", getStreamFieldName(prefField), getFieldValue(prefField, targetClassFieldName));
+                return;
+            }
+            // encoded value is compared, so that unchanged value is neither decoded nor delivered
+            String valueName = prefField.getFieldName() + "Value";
+            String changedName = prefField.getFieldName() + "Changed";
+            methodBuilder.addStatement("$T $L = $L", getSyncedValueType(prefField), valueName,
+                    getPreferenceReadValue(prefField, getRepositoryFieldName(prefField)));
+            setSyncedStateIfChangedStatement(prefField, valueName, CodeBlock.of("$L", valueName), changedName, null, methodBuilder);
+            methodBuilder.beginControlFlow("if ($L)", changedName);
+            setSaveOldValueStatement(prefField, methodBuilder);
+            setFieldValueStatement(prefField, targetClassFieldName,
+                    getDecodedValue(prefField, getRepositoryFieldName(prefField), getSyncedCopy(prefField, valueName)),
+                    methodBuilder);
+            setUpdateMethodCallStatement(prefField, methodBuilder);
+            methodBuilder
+                    .addStatement("$L.emit($L)", getStreamFieldName(prefField), getFieldValue(prefField, targetClassFieldName))
+                    .endControlFlow();
+        }, preferenceChangeListenerMethodBuilder);
         return preferenceChangeListenerMethodBuilder.build();
     }
 
-    private static MethodSpec getUnbindMethod() {
-        return MethodSpec.methodBuilder("unbind")
+    /**
+     * Handles change on decode executor: value is read and decoded there, while everything that touches
+     * target class instance is done by a task passed to delivery executor.
+     */
+    private static MethodSpec getAsyncPreferenceChangeListenerMethod(List<PrefField> vars) {
+        ClassName preferenceRepositoryClassName = ClassName.get(libPackageName, repoClass);
+
+        MethodSpec.Builder methodBuilder = MethodSpec.methodBuilder("onPreferenceChangedAsync")
+                .addModifiers(Modifier.PRIVATE)
+                .addParameter(preferenceRepositoryClassName, "repository")
+                .addParameter(String.class, "key");
+
+        setPreferenceChangeStatement(vars, PrefField::isObservable, (prefField, builder) -> {
+            String valueName = prefField.getFieldName() + "Value";
+            String decodedValueName = prefField.getFieldName() + "Decoded";
+            builder.addStatement("final $T $L = $L", getSyncedValueType(prefField), valueName,
+                    getPreferenceReadValue(prefField, "repository"));
+            String versionName = prefField.getFieldName() + "Version";
+            if (prefField.isUnchangedValueSkipped()) {
+                // changed value is synced here, so that the next change is compared with it even before delivery,
+                // and version tells delivery whether field was read or written in the meantime
+                String changedName = prefField.getFieldName() + "Changed";
+                builder.addStatement("final int $L", versionName);
+                setSyncedStateIfChangedStatement(prefField, valueName, CodeBlock.of("$L", valueName), changedName, versionName, builder);
+                builder.beginControlFlow("if ($L)", changedName);
+            }
+            CodeBlock decodedValue = getSyncedCopy(prefField, valueName);
+            if (isDecoded(prefField)) {
+                builder.addStatement("final $T $L = $L", prefField.getFieldType(), decodedValueName,
+                        getDecodedValue(prefField, "repository", decodedValue));
+                decodedValue = CodeBlock.of("$L", decodedValueName);
+            }
+
+            MethodSpec.Builder deliverMethodBuilder = MethodSpec.methodBuilder("run")
+                    .addAnnotation(Override.class)
+                    .addModifiers(Modifier.PUBLIC)
+                    // instance may have been unbound in the meantime
+                    .beginControlFlow("if ($L == null)", targetClassFieldName)
+                    .addStatement("return")
+                    .endControlFlow();
+            if (prefField.isUnchangedValueSkipped()) {
+                // field read or written after the change was decoded already holds a newer value
+                deliverMethodBuilder
+                        .beginControlFlow("synchronized ($L)", syncLockFieldName)
+                        .beginControlFlow("if ($L != $L)", versionName, getSyncVersionFieldName(prefField))
+                        .addStatement("return")
+                        .endControlFlow()
+                        .endControlFlow();
+            } else {
+                setSyncedStateStatement(prefField, CodeBlock.of("$L", valueName), deliverMethodBuilder);
+            }
+            setSaveOldValueStatement(prefField, deliverMethodBuilder);
+            setFieldValueStatement(prefField, targetClassFieldName, decodedValue, deliverMethodBuilder);
+            setUpdateMethodCallStatement(prefField, deliverMethodBuilder);
+            deliverMethodBuilder.addStatement("$L.emit($L)", getStreamFieldName(prefField), getFieldValue(prefField, targetClassFieldName));
+
+            TypeSpec deliverTask = TypeSpec.anonymousClassBuilder("")
+                    .addSuperinterface(Runnable.class)
+                    .addMethod(deliverMethodBuilder.build())
+                    .build();
+            builder.addStatement("$L.execute($L)", deliveryExecutorFieldName, deliverTask);
+            if (prefField.isUnchangedValueSkipped()) {
+                builder.endControlFlow();
+            }
+        }, methodBuilder);
+        return methodBuilder.build();
+    }
+
+    /**
+     * Serial executors are created once, so that changes pending on previous executors are not reordered with
+     * changes handled after executors are replaced.
+     */
+    private static FieldSpec getSerialExecutorField(String fieldName) {
+        ClassName serialExecutorClassName = ClassName.get(libPackageName, "SerialExecutor");
+        return FieldSpec.builder(serialExecutorClassName, fieldName, Modifier.PRIVATE, Modifier.FINAL)
+                .initializer("new $T(null)", serialExecutorClassName)
+                .build();
+    }
+
+    private static MethodSpec getSetChangeExecutorsMethod() {
+        return MethodSpec.methodBuilder("setChangeExecutors")
+                .addAnnotation(Override.class)
                 .addModifiers(Modifier.PUBLIC)
+                .addParameter(Executor.class, "decodeExecutor")
+                .addParameter(Executor.class, "deliveryExecutor")
+                // delivery executor is set first, since it is used after decode executor
+                .addStatement("$L.setExecutor(decodeExecutor != null ? deliveryExecutor : null)", deliveryExecutorFieldName)
+                .addStatement("$L.setExecutor(decodeExecutor)", decodeExecutorFieldName)
+                .build();
+    }
+
+    private static FieldSpec getLazyFieldInvalidatorField(List<PrefField> vars) {
+        ClassName preferenceListenerClassName = ClassName.get(libPackageName, "PreferenceChangeListener");
+        ClassName preferenceRepositoryClassName = ClassName.get(libPackageName, repoClass);
+
+        MethodSpec.Builder invalidateMethodBuilder = MethodSpec.methodBuilder("onPreferenceChanged")
                 .addAnnotation(Override.class)
-                .addStatement("stopObserveChanges()")
-                .addStatement("$L = null", repoFieldName)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(preferenceRepositoryClassName, "repository")
+                .addParameter(String.class, "key");
+        // Changed value is not read here, lazy field is read again on its next access.
+        setPreferenceChangeStatement(vars, PrefField::isLazy, (prefField, methodBuilder) ->
+                methodBuilder.addStatement("$L = false", getLoadedFlagFieldName(prefField)),
+                invalidateMethodBuilder);
+
+        TypeSpec invalidator = TypeSpec.anonymousClassBuilder("")
+                .addSuperinterface(preferenceListenerClassName)
+                .addMethod(invalidateMethodBuilder.build())
+                .build();
+        return FieldSpec.builder(preferenceListenerClassName, lazyFieldInvalidatorFieldName, Modifier.PRIVATE, Modifier.FINAL)
+                .initializer("$L", invalidator)
+                .build();
+    }
+
+    private static void setPreferenceChangeStatement(List<PrefField> vars,
+                                                     Predicate<PrefField> filter,
+                                                     BiConsumer<PrefField, MethodSpec.Builder> fieldStatement,
+                                                     MethodSpec.Builder methodBuilder) {
+        if (preferenceFileNames.size() == 1) {
+            setPreferenceChangeSwitchStatement(getFieldsByPreferenceName(vars, filter), fieldStatement, methodBuilder);
+            return;
+        }
+
+        // Keys are unique only within a file, so the repository which sent the change selects the switch.
+        boolean isFirstBranch = true;
+        for (int i = 0; i < preferenceFileNames.size(); i++) {
+            Map<String, List<PrefField>> fields = getFieldsByPreferenceName(getFieldsOfFile(i, vars), filter);
+            if (fields.isEmpty()) {
+                continue;
+            }
+            if (isFirstBranch) {
+                methodBuilder.beginControlFlow("if (repository == $L)", getRepositoryFieldName(i));
+                isFirstBranch = false;
+            } else {
+                methodBuilder.nextControlFlow("else if (repository == $L)", getRepositoryFieldName(i));
+            }
+            setPreferenceChangeSwitchStatement(fields, fieldStatement, methodBuilder);
+        }
+        if (!isFirstBranch) {
+            methodBuilder.endControlFlow();
+        }
+    }
+
+    private static void setPreferenceChangeSwitchStatement(Map<String, List<PrefField>> fields,
+                                                           BiConsumer<PrefField, MethodSpec.Builder> fieldStatement,
+                                                           MethodSpec.Builder methodBuilder) {
+        if (fields.isEmpty()) {
+            return;
+        }
+
+        methodBuilder.beginControlFlow("switch (key)");
+        for (Map.Entry<String, List<PrefField>> entry : fields.entrySet()) {
+            methodBuilder.addCode("case $S: {\n$>", entry.getKey());
+            for (PrefField prefField : entry.getValue()) {
+                fieldStatement.accept(prefField, methodBuilder);
+            }
+            methodBuilder
+                    .addStatement("break")
+                    .addCode("$<}\n");
+        }
+        methodBuilder.endControlFlow();
+    }
+
+    private static MethodSpec getUnbindMethod(List<PrefField> vars) {
+        MethodSpec.Builder unbindMethodBuilder = MethodSpec.methodBuilder("unbind")
+                .addModifiers(Modifier.PUBLIC)
+                .addAnnotation(Override.class)
+                .addStatement("stopObserveChanges()");
+        for (PrefField var : vars) {
+            if (var.isObservable()) {
+                unbindMethodBuilder.addStatement("$L.complete()", getStreamFieldName(var));
+            }
+        }
+        for (int i = 0; i < preferenceFileNames.size(); i++) {
+            unbindMethodBuilder.addStatement("$L = null", getRepositoryFieldName(i));
+        }
+        return unbindMethodBuilder
                 .addStatement("$L = null", targetClassFieldName)
                 .build();
     }
@@ -260,8 +777,28 @@ public class PreferenceClassCreator {
                 .addModifiers(Modifier.PUBLIC)
                 .addAnnotation(Override.class);
 
+        // Fields of each file are read from one snapshot, so values changed together are never read torn.
+        ClassName preferenceSnapshotClassName = ClassName.get(libPackageName, snapshotClass);
+        List<PrefField> eagerVars = getEagerFields(vars);
+        for (int i = 0; i < preferenceFileNames.size(); i++) {
+            List<PrefField> fileVars = getFieldsOfFile(i, eagerVars);
+            if (fileVars.isEmpty()) {
+                continue;
+            }
+            readAllMethodBuilder.addStatement("$T $L = $L.snapshot($L)",
+                    preferenceSnapshotClassName,
+                    getSnapshotVariableName(i),
+                    getRepositoryFieldName(i),
+                    getReadKeysFieldName(i));
+            for (PrefField var : fileVars) {
+                setPreferenceReadStatement(var, getSnapshotVariableName(i), readAllMethodBuilder);
+            }
+        }
+        // Lazy field is read again on its next access, unless it holds a value set by the user which was not written.
         for (PrefField var : vars) {
-            setPreferenceReadStatement(var, readAllMethodBuilder);
+            if (var.isLazy()) {
+                readAllMethodBuilder.addStatement("$L = $L", getLoadedFlagFieldName(var), getUnsavedFlagFieldName(var));
+            }
         }
         return readAllMethodBuilder.build();
     }
@@ -271,30 +808,72 @@ public class PreferenceClassCreator {
                 .addModifiers(Modifier.PUBLIC)
                 .addAnnotation(Override.class);
 
-        for (PrefField var : vars) {
-            setPreferenceWriteStatement(var, writeAllMethodBuilder);
+        // Each preferences file is written by its own editor, so every file is persisted once.
+        ClassName preferenceEditorClassName = ClassName.get(libPackageName, editorClass);
+        for (int i = 0; i < preferenceFileNames.size(); i++) {
+            List<PrefField> fileVars = getFieldsOfFile(i, vars);
+            if (fileVars.isEmpty()) {
+                continue;
+            }
+            writeAllMethodBuilder.addStatement("$T $L = null", preferenceEditorClassName, getEditorVariableName(i));
+            for (PrefField var : fileVars) {
+                // Lazy field which was not read holds no value of its own, so it would overwrite preferences.
+                if (var.isLazy()) {
+                    writeAllMethodBuilder.beginControlFlow("if ($L)", getLoadedFlagFieldName(var));
+                    setPreferenceWriteIfChangedStatement(var, getEditorVariableName(i), writeAllMethodBuilder);
+                    writeAllMethodBuilder
+                            .addStatement("$L = false", getUnsavedFlagFieldName(var))
+                            .endControlFlow();
+                } else {
+                    setPreferenceWriteIfChangedStatement(var, getEditorVariableName(i), writeAllMethodBuilder);
+                }
+            }
+            writeAllMethodBuilder
+                    .beginControlFlow("if ($L != null)", getEditorVariableName(i))
+                    .addStatement("$L.apply()", getEditorVariableName(i))
+                    .endControlFlow();
         }
         return writeAllMethodBuilder.build();
     }
 
-    private static MethodSpec getObserveChangesMethod() {
-        return MethodSpec.methodBuilder("observeChanges")
+    private static MethodSpec getObserveChangesMethod(List<PrefField> vars) {
+        MethodSpec.Builder observeChangesMethodBuilder = MethodSpec.methodBuilder("observeChanges")
                 .addModifiers(Modifier.PUBLIC)
-                .addAnnotation(Override.class)
-                .addStatement(
-                    "$L.registerOnSharedPreferenceChangeListener(this)",
-                    repoFieldName)
-                .build();
+                .addAnnotation(Override.class);
+        for (int i = 0; i < preferenceFileNames.size(); i++) {
+            observeChangesMethodBuilder.addStatement(
+                    "$L.registerPreferenceChangeListener(this, $L)",
+                    getRepositoryFieldName(i),
+                    getObservedKeysFieldName(i));
+            if (hasLazyFields(i, vars)) {
+                observeChangesMethodBuilder.addStatement(
+                        "$L.registerPreferenceChangeListener($L, $L)",
+                        getRepositoryFieldName(i),
+                        lazyFieldInvalidatorFieldName,
+                        getLazyKeysFieldName(i));
+            }
+        }
+        return observeChangesMethodBuilder.build();
     }
 
-    private static MethodSpec getStopObserveChangesMethod() {
-        return MethodSpec.methodBuilder("stopObserveChanges")
+    private static MethodSpec getStopObserveChangesMethod(List<PrefField> vars) {
+        MethodSpec.Builder stopObserveChangesMethodBuilder = MethodSpec.methodBuilder("stopObserveChanges")
                 .addModifiers(Modifier.PUBLIC)
-                .addAnnotation(Override.class)
-                .addStatement(
-                    "$L.unregisterOnSharedPreferenceChangeListener(this)",
-                    repoFieldName)
-                .build();
+                .addAnnotation(Override.class);
+        for (int i = 0; i < preferenceFileNames.size(); i++) {
+            stopObserveChangesMethodBuilder.addStatement(
+                    "$L.unregisterPreferenceChangeListener(this, $L)",
+                    getRepositoryFieldName(i),
+                    getObservedKeysFieldName(i));
+            if (hasLazyFields(i, vars)) {
+                stopObserveChangesMethodBuilder.addStatement(
+                        "$L.unregisterPreferenceChangeListener($L, $L)",
+                        getRepositoryFieldName(i),
+                        lazyFieldInvalidatorFieldName,
+                        getLazyKeysFieldName(i));
+            }
+        }
+        return stopObserveChangesMethodBuilder.build();
     }
 
     private static MethodSpec getPreferenceRepositoryMethod() {
@@ -310,7 +889,7 @@ public class PreferenceClassCreator {
     private static MethodSpec getFieldReadMethod(PrefField var, PrefClass clazz) {
         MethodSpec.Builder readMethodBuilder = MethodSpec.methodBuilder("read" + var.getFieldNameCapitalized())
                 .addJavadoc(
-                        "Finds value using key '$L' from {@link android.content.SharedPreferences} and sets it to field '$L'" +
+                        "Finds value using key '$L' from preferences and sets it to field '$L'" +
                         " in target class {@link $L}." +
                         "\n",
                         var.getPreferenceName(),
@@ -324,7 +903,7 @@ public class PreferenceClassCreator {
     private static MethodSpec getFieldWriteMethod(PrefField var, PrefClass clazz) {
         MethodSpec.Builder writeMethodBuilder = MethodSpec.methodBuilder("write" + var.getFieldNameCapitalized())
                 .addJavadoc(
-                        "Writes value of field '$L' from target class {@link $L} to {@link android.content.SharedPreferences} with" +
+                        "Writes value of field '$L' from target class {@link $L} to preferences with " +
                         "key '$L'." +
                         "\n",
                         var.getFieldName(),
@@ -335,17 +914,110 @@ public class PreferenceClassCreator {
         return writeMethodBuilder.build();
     }
 
+    private static MethodSpec getLazyFieldGetMethod(PrefField var, PrefClass clazz) {
+        MethodSpec.Builder getMethodBuilder = MethodSpec.methodBuilder("get" + var.getFieldNameCapitalized())
+                .addJavadoc(
+                        "Returns value of field '$L' in target class {@link $L}. Value is read from preferences with" +
+                        " key '$L' on first call and again after it is changed in preferences while changes are observed" +
+                        " (see {@link #observeChanges()}) or after {@link #readAll()}, unless it was set and not written." +
+                        "\n" +
+                        "@return Value of the field." +
+                        "\n",
+                        var.getFieldName(),
+                        clazz.getTypeName(),
+                        var.getPreferenceName())
+                .addModifiers(Modifier.PUBLIC)
+                .returns(TypeName.get(var.getFieldType()))
+                .beginControlFlow("if (!$L)", getLoadedFlagFieldName(var))
+                .addStatement("read$L()", var.getFieldNameCapitalized())
+                .endControlFlow()
+                .addStatement("return $L", getFieldValue(var, targetClassFieldName));
+        return getMethodBuilder.build();
+    }
+
+    private static MethodSpec getLazyFieldSetMethod(PrefField var, PrefClass clazz) {
+        MethodSpec.Builder setMethodBuilder = MethodSpec.methodBuilder("set" + var.getFieldNameCapitalized())
+                .addJavadoc(
+                        "Sets value of field '$L' in target class {@link $L} without reading it from preferences first." +
+                        " Value is written by {@link #writeAll()} or {@link #write$L()}." +
+                        "\n" +
+                        "@param value New value of the field." +
+                        "\n",
+                        var.getFieldName(),
+                        clazz.getTypeName(),
+                        var.getFieldNameCapitalized())
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(TypeName.get(var.getFieldType()), "value");
+        if (var.isPrivate()) {
+            setMethodBuilder.addStatement("$L.set$L(value)", targetClassFieldName, var.getFieldNameCapitalized());
+        } else {
+            setMethodBuilder.addStatement("$L.$L = value", targetClassFieldName, var.getFieldName());
+        }
+        return setMethodBuilder
+                .addStatement("$L = true", getUnsavedFlagFieldName(var))
+                .addStatement("$L = true", getLoadedFlagFieldName(var))
+                .build();
+    }
+
+    private static FieldSpec getStreamField(PrefField var) {
+        return FieldSpec.builder(getStreamType(var), getStreamFieldName(var), Modifier.PRIVATE, Modifier.FINAL)
+                .initializer("new $T<>()", ClassName.get(libPackageName, streamClass))
+                .build();
+    }
+
+    private static MethodSpec getStreamMethod(PrefField var, PrefClass clazz) {
+        return MethodSpec.methodBuilder("get" + var.getFieldNameCapitalized() + "Stream")
+                .addJavadoc(
+                        "Returns stream of new values of field '$L' in target class {@link $L}. Value is emitted" +
+                        " whenever preference with key '$L' changes while changes are observed (see {@link #observeChanges()})," +
+                        " and stream is completed by {@link #unbind()}." +
+                        "\n" +
+                        "@return Stream of values of the field." +
+                        "\n",
+                        var.getFieldName(),
+                        clazz.getTypeName(),
+                        var.getPreferenceName())
+                .addModifiers(Modifier.PUBLIC)
+                .returns(getStreamType(var))
+                .addStatement("return $L", getStreamFieldName(var))
+                .build();
+    }
+
+    private static MethodSpec getFieldDecodeMethod(PrefField var) {
+        ClassName preferenceRepositoryClassName = ClassName.get(libPackageName, repoClass);
+        ClassName decodedValueCacheClassName = ClassName.get(libPackageName, "DecodedValueCache");
+        // list and single value are decoded by different methods of the same transformer
+        String decoder = getConverterTypeParameters(var) + (var.isList() ? "#list" : "");
+        return MethodSpec.methodBuilder("decode" + var.getFieldNameCapitalized())
+                .addAnnotation(AnnotationSpec.builder(SuppressWarnings.class).addMember("value", "$S", "unchecked").build())
+                .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+                .addParameter(preferenceRepositoryClassName, "repository")
+                .addParameter(var.getPreferenceType().getStoredType(), "value")
+                .returns(TypeName.get(var.getFieldType()))
+                .addStatement("$T cache = repository.getDecodedValueCache()", decodedValueCacheClassName)
+                .addStatement("$T decoded = cache.get($S, $S, value)", Object.class, var.getPreferenceName(), decoder)
+                .beginControlFlow("if (decoded == $T.MISSING)", decodedValueCacheClassName)
+                .addStatement("decoded = $L.$L(value)",
+                        transformerFieldNames.get(getConverterTypeParameters(var)),
+                        var.isList() ? "convertReadList" : "convertRead")
+                .addStatement("cache.put($S, $S, value, decoded)", var.getPreferenceName(), decoder)
+                .endControlFlow()
+                .addStatement("return ($T) decoded", var.getFieldType())
+                .build();
+    }
 
     private static void setSaveOldValueStatement(PrefField var, MethodSpec.Builder methodBuilder) {
         if (!var.getSubscribeMethodName().isEmpty()) {
             if (var.isPrivate()) {
-                methodBuilder.addStatement("$T oldValue = $L.get$L()",
+                methodBuilder.addStatement("$T $LOldValue = $L.get$L()",
                         var.getFieldType(),
+                        var.getFieldName(),
                         targetClassFieldName,
                         var.getFieldNameCapitalized());
             } else {
-                methodBuilder.addStatement("$T oldValue = $L.$L",
+                methodBuilder.addStatement("$T $LOldValue = $L.$L",
                         var.getFieldType(),
+                        var.getFieldName(),
                         targetClassFieldName,
                         var.getFieldName());
             }
@@ -356,9 +1028,10 @@ public class PreferenceClassCreator {
         if (!var.getSubscribeMethodName().isEmpty()) {
             methodBuilder
                     .addStatement(
-                            "$L.$L(oldValue)",
+                            "$L.$L($LOldValue)",
                             targetClassFieldName,
-                            var.getSubscribeMethodName());
+                            var.getSubscribeMethodName(),
+                            var.getFieldName());
         }
     }
 
@@ -380,82 +1053,300 @@ public class PreferenceClassCreator {
         }
     }
 
+    private static String getSyncedValueFieldName(PrefField var) {
+        return "mSynced" + var.getFieldNameCapitalized();
+    }
+
+    private static String getSyncedFlagFieldName(PrefField var) {
+        return "mIs" + var.getFieldNameCapitalized() + "Synced";
+    }
+
+    /**
+     * Number of times field was read or written, which tells delivery of a change whether it is outdated.
+     */
+    private static String getSyncVersionFieldName(PrefField var) {
+        return "m" + var.getFieldNameCapitalized() + "SyncVersion";
+    }
+
+    private static boolean hasSyncVersion(PrefField var) {
+        return var.isObservable() && var.isUnchangedValueSkipped();
+    }
+
+    private static String getLoadedFlagFieldName(PrefField var) {
+        return "mIs" + var.getFieldNameCapitalized() + "Loaded";
+    }
+
+    private static String getUnsavedFlagFieldName(PrefField var) {
+        return "mIs" + var.getFieldNameCapitalized() + "Unsaved";
+    }
+
+    private static String getStreamFieldName(PrefField var) {
+        return "m" + var.getFieldNameCapitalized() + "Stream";
+    }
+
+    private static TypeName getStreamType(PrefField var) {
+        return ParameterizedTypeName.get(ClassName.get(libPackageName, streamClass), TypeName.get(var.getFieldType()).box());
+    }
+
+    private static TypeName getSyncedValueType(PrefField var) {
+        if (isDecoded(var)) {
+            return var.getPreferenceType().getStoredType();
+        }
+        return TypeName.get(var.getFieldType());
+    }
+
+    /**
+     * @return true if field is not of stored type, so that value is decoded by transformer or converted to list.
+     */
+    private static boolean isDecoded(PrefField var) {
+        return var.getTransformer() != null || var.isPrimitiveList();
+    }
+
     private static void setPreferenceReadStatement(PrefField var, MethodSpec.Builder methodBuilder) {
-        if (var.isPrivate()) {
-            if (var.getTransformer() != null) {
-                methodBuilder.addStatement(String.format("$L.set$T(($T) new $T(){}.convertRead($L.get($S, %s)))", var.getDefaultValueType()),
-                        targetClassFieldName,
-                        var.getFieldNameCapitalized(),
-                        var.getFieldType(),
-                        getConverterTypeParameters(var),
-                        var.isList() ? "convertReadList" : "convertRead",
-                        repoFieldName,
-                        var.getPreferenceName(),
-                        var.getDefaultValue());
-            } else {
-                methodBuilder.addStatement(String.format("$L.set$L($L.get($S, %s))", var.getDefaultValueType()),
-                        targetClassFieldName,
-                        var.getFieldNameCapitalized(),
-                        repoFieldName,
-                        var.getPreferenceName(),
-                        var.getDefaultValue());
+        setPreferenceReadStatement(var, getRepositoryFieldName(var), methodBuilder);
+    }
+
+    /**
+     * @param sourceName Repository or snapshot from which value is read.
+     */
+    private static void setPreferenceReadStatement(PrefField var, String sourceName, MethodSpec.Builder methodBuilder) {
+        setSyncedValueStatement(var, getPreferenceReadValue(var, sourceName), methodBuilder);
+    }
+
+    /**
+     * Sets value read from preferences as synced value and its decoded value to the field.
+     */
+    private static void setSyncedValueStatement(PrefField var, CodeBlock value, MethodSpec.Builder methodBuilder) {
+        String valueName = var.getFieldName() + "Value";
+        methodBuilder.addStatement("$T $L = $L", getSyncedValueType(var), valueName, value);
+        setSyncedStateStatement(var, CodeBlock.of("$L", valueName), methodBuilder);
+        setFieldValueStatement(var,
+                targetClassFieldName,
+                getDecodedValue(var, getRepositoryFieldName(var), getSyncedCopy(var, valueName)),
+                methodBuilder);
+        if (var.isLazy()) {
+            methodBuilder.addStatement("$L = false", getUnsavedFlagFieldName(var));
+            methodBuilder.addStatement("$L = true", getLoadedFlagFieldName(var));
+        }
+    }
+
+    private static CodeBlock getPreferenceReadValue(PrefField var, String sourceName) {
+        return CodeBlock.of("$L.get$L($S, $L)",
+                sourceName,
+                var.getPreferenceType().getAccessorSuffix(),
+                var.getPreferenceName(),
+                getDefaultValue(var));
+    }
+
+    private static CodeBlock getDefaultValue(PrefField var) {
+        if (var.getPreferenceType() == PreferenceType.STRING_SET) {
+            // new set on every read, since field gets the set read from preferences and may modify it
+            String[] defaultValues = (String[]) var.getDefaultValue();
+            if (defaultValues.length == 0) {
+                return CodeBlock.of("new $T<$T>()", HashSet.class, String.class);
             }
-        } else {
-            if (var.getTransformer() != null) {
-                methodBuilder.addStatement(String.format("$L.$L = ($T) new $T(){}.$L($L.get($S, %s))", var.getDefaultValueType()),
-                        targetClassFieldName,
-                        var.getFieldName(),
-                        var.getFieldType(),
-                        getConverterTypeParameters(var),
-                        var.isList() ? "convertReadList" : "convertRead",
-                        repoFieldName,
-                        var.getPreferenceName(),
-                        var.getDefaultValue());
-            } else {
-                methodBuilder.addStatement(String.format("$L.$L = $L.get($S, %s)", var.getDefaultValueType()),
-                        targetClassFieldName,
-                        var.getFieldName(),
-                        repoFieldName,
-                        var.getPreferenceName(),
-                        var.getDefaultValue());
+            CodeBlock values = Arrays.stream(defaultValues)
+                    .map(value -> CodeBlock.of("$S", value))
+                    .collect(CodeBlock.joining(", "));
+            return CodeBlock.of("new $T<$T>($T.asList($L))", HashSet.class, String.class, Arrays.class, values);
+        } else if (var.getDefaultValue() != null && var.getDefaultValue().getClass().isArray()) {
+            // new array on every read for the same reason
+            TypeName componentType = ((ArrayTypeName) var.getPreferenceType().getStoredType()).componentType;
+            Object defaultValues = var.getDefaultValue();
+            CodeBlock values = IntStream.range(0, Array.getLength(defaultValues))
+                    .mapToObj(i -> getArrayElementLiteral(Array.get(defaultValues, i)))
+                    .collect(CodeBlock.joining(", "));
+            if (values.isEmpty()) {
+                return CodeBlock.of("new $T[0]", componentType);
             }
+            return CodeBlock.of("new $T[] {$L}", componentType, values);
         }
+        return CodeBlock.of(var.getDefaultValueType(), var.getDefaultValue());
     }
 
-    private static void setPreferenceWriteStatement(PrefField var, MethodSpec.Builder methodBuilder) {
+    private static CodeBlock getArrayElementLiteral(Object value) {
+        if (value instanceof Long) {
+            return CodeBlock.of("$LL", value);
+        } else if (value instanceof Float) {
+            return CodeBlock.of("$LF", value);
+        } else if (value instanceof Double) {
+            return CodeBlock.of("$LD", value);
+        }
+        return CodeBlock.of("$L", value);
+    }
+
+    /**
+     * Stored values which can be modified in place (see {@link PreferenceType#isMutable()}) are copied between
+     * field and synced value, so that modification of the field is seen as a change by writeAll.
+     * @param valueName Name of variable or field holding the value.
+     */
+    private static CodeBlock getSyncedCopy(PrefField var, String valueName) {
+        if (isDecoded(var) || !var.getPreferenceType().isMutable()) {
+            // decoded values are new objects already
+            return CodeBlock.of("$L", valueName);
+        } else if (var.getPreferenceType() == PreferenceType.STRING_SET) {
+            return CodeBlock.of("$L != null ? new $T<$T>($L) : null", valueName, HashSet.class, String.class, valueName);
+        }
+        return CodeBlock.of("$L != null ? $L.clone() : null", valueName, valueName);
+    }
+
+    private static void setFieldValueStatement(PrefField var, String target, CodeBlock value, MethodSpec.Builder methodBuilder) {
         if (var.isPrivate()) {
-            if (var.getTransformer() != null) {
-                methodBuilder.addStatement("$L.put($S, new $T(){}.$L($L.get$L()))",
-                        repoFieldName,
-                        var.getPreferenceName(),
-                        getConverterTypeParameters(var),
-                        var.isList() ? "convertWriteList" : "convertWrite",
-                        targetClassFieldName,
-                        var.getFieldNameCapitalized());
-            } else {
-                methodBuilder.addStatement("$L.put($S, $L.get$L())",
-                        repoFieldName,
-                        var.getPreferenceName(),
-                        targetClassFieldName,
-                        var.getFieldNameCapitalized());
-            }
+            methodBuilder.addStatement("$L.set$L($L)",
+                    target,
+                    var.getFieldNameCapitalized(),
+                    value);
         } else {
-            if (var.getTransformer() != null) {
-                methodBuilder.addStatement("$L.put($S, new $T(){}.$L($L.$L))",
-                        repoFieldName,
-                        var.getPreferenceName(),
-                        getConverterTypeParameters(var),
-                        var.isList() ? "convertWriteList" : "convertWrite",
-                        targetClassFieldName,
-                        var.getFieldName());
-            } else {
-                methodBuilder.addStatement("$L.put($S, $L.$L)",
-                        repoFieldName,
+            methodBuilder.addStatement("$L.$L = $L",
+                    target,
+                    var.getFieldName(),
+                    value);
+        }
+    }
+
+    private static CodeBlock getDecodedValue(PrefField var, String repositoryName, CodeBlock preferenceValue) {
+        if (var.isDecodedValueCached()) {
+            return CodeBlock.of("decode$L($L, $L)",
+                    var.getFieldNameCapitalized(),
+                    repositoryName,
+                    preferenceValue);
+        } else if (var.getTransformer() != null) {
+            CodeBlock readValue = CodeBlock.of("$L.$L($L)",
+                    transformerFieldNames.get(getConverterTypeParameters(var)),
+                    var.isList() ? "convertReadList" : "convertRead",
+                    preferenceValue);
+            return var.isReadCastNeeded() ? CodeBlock.of("($T) $L", var.getFieldType(), readValue) : readValue;
+        } else if (var.isPrimitiveList()) {
+            return CodeBlock.of("$T.toList($L)", ClassName.get(libPackageName, primitiveArraysClass), preferenceValue);
+        }
+        return preferenceValue;
+    }
+
+    private static void setPreferenceWriteStatement(PrefField var, MethodSpec.Builder methodBuilder) {
+        String valueName = var.getFieldName() + "Value";
+        methodBuilder.addStatement("$T $L = $L", getSyncedValueType(var), valueName, getPreferenceWriteValue(var, targetClassFieldName));
+        // synced before the write, since stores may notify listeners synchronously
+        setSyncedStateStatement(var, getSyncedCopy(var, valueName), methodBuilder);
+        methodBuilder.addStatement("$L.put$L($S, $L)",
+                getRepositoryFieldName(var),
+                var.getPreferenceType().getAccessorSuffix(),
+                var.getPreferenceName(),
+                valueName);
+        if (var.isLazy()) {
+            methodBuilder.addStatement("$L = false", getUnsavedFlagFieldName(var));
+            methodBuilder.addStatement("$L = true", getLoadedFlagFieldName(var));
+        }
+    }
+
+    private static void setPreferenceWriteIfChangedStatement(PrefField var, String editorName, MethodSpec.Builder methodBuilder) {
+        String valueName = var.getFieldName() + "Value";
+        String changedName = var.getFieldName() + "Changed";
+        methodBuilder.addStatement("$T $L = $L", getSyncedValueType(var), valueName, getPreferenceWriteValue(var, targetClassFieldName));
+        setSyncedStateIfChangedStatement(var, valueName, getSyncedCopy(var, valueName), changedName, null, methodBuilder);
+        methodBuilder
+                .beginControlFlow("if ($L)", changedName)
+                .beginControlFlow("if ($L == null)", editorName)
+                .addStatement("$L = $L.edit()", editorName, getRepositoryFieldName(var))
+                .endControlFlow()
+                .addStatement("$L.put$L($S, $L)",
+                        editorName,
+                        var.getPreferenceType().getAccessorSuffix(),
                         var.getPreferenceName(),
-                        targetClassFieldName,
-                        var.getFieldName());
-            }
+                        valueName)
+                .endControlFlow();
+    }
+
+    /**
+     * Sets synced value after field was read or written. Synced state is guarded by sync lock, while preferences
+     * and target class instance are accessed outside of it.
+     */
+    private static void setSyncedStateStatement(PrefField var, CodeBlock syncedValue, MethodSpec.Builder methodBuilder) {
+        methodBuilder
+                .beginControlFlow("synchronized ($L)", syncLockFieldName)
+                .addStatement("$L = $L", getSyncedValueFieldName(var), syncedValue)
+                .addStatement("$L = true", getSyncedFlagFieldName(var));
+        if (hasSyncVersion(var)) {
+            methodBuilder.addStatement("$L++", getSyncVersionFieldName(var));
+        }
+        methodBuilder.endControlFlow();
+    }
+
+    /**
+     * Compares value with synced value and sets it as synced value if it differs, atomically.
+     * @param changedName Variable which is declared to tell whether value differs.
+     * @param versionName Variable which gets version of synced state when change is handled on decode executor,
+     *                    or null if field is read or written, which increments the version.
+     */
+    private static void setSyncedStateIfChangedStatement(PrefField var,
+                                                         String valueName,
+                                                         CodeBlock syncedValue,
+                                                         String changedName,
+                                                         String versionName,
+                                                         MethodSpec.Builder methodBuilder) {
+        methodBuilder
+                .addStatement("boolean $L", changedName)
+                .beginControlFlow("synchronized ($L)", syncLockFieldName)
+                .addStatement("$L = $L", changedName,
+                        getChangedCondition(var, getSyncedFlagFieldName(var), getSyncedValueFieldName(var), valueName))
+                .beginControlFlow("if ($L)", changedName)
+                .addStatement("$L = $L", getSyncedValueFieldName(var), syncedValue)
+                .addStatement("$L = true", getSyncedFlagFieldName(var));
+        if (versionName == null && hasSyncVersion(var)) {
+            methodBuilder.addStatement("$L++", getSyncVersionFieldName(var));
+        }
+        methodBuilder.endControlFlow();
+        if (versionName != null) {
+            methodBuilder.addStatement("$L = $L", versionName, getSyncVersionFieldName(var));
+        }
+        methodBuilder.endControlFlow();
+    }
+
+    /**
+     * @return Condition which is true if value differs from synced value or if there is no synced value.
+     */
+    private static CodeBlock getChangedCondition(PrefField var, String syncedFlagName, String syncedValueName, String valueName) {
+        if (getSyncedValueType(var) == TypeName.FLOAT) {
+            // bits are compared, so that NaN equals itself and the field is not rewritten on every writeAll
+            return CodeBlock.of("!$L || $T.floatToIntBits($L) != $T.floatToIntBits($L)",
+                    syncedFlagName, Float.class, syncedValueName, Float.class, valueName);
+        } else if (getSyncedValueType(var) == TypeName.DOUBLE) {
+            return CodeBlock.of("!$L || $T.doubleToLongBits($L) != $T.doubleToLongBits($L)",
+                    syncedFlagName, Double.class, syncedValueName, Double.class, valueName);
+        } else if (getSyncedValueType(var).isPrimitive()) {
+            return CodeBlock.of("!$L || $L != $L", syncedFlagName, syncedValueName, valueName);
+        } else if (getSyncedValueType(var) instanceof ArrayTypeName) {
+            return CodeBlock.of("!$L || !$T.equals($L, $L)", syncedFlagName, Arrays.class, syncedValueName, valueName);
+        }
+        return CodeBlock.of("!$L || $L != $L && ($L == null || !$L.equals($L))",
+                syncedFlagName,
+                syncedValueName,
+                valueName,
+                syncedValueName,
+                syncedValueName,
+                valueName);
+    }
+
+    private static CodeBlock getFieldValue(PrefField var, String target) {
+        if (var.isPrivate()) {
+            return CodeBlock.of("$L.get$L()", target, var.getFieldNameCapitalized());
+        }
+        return CodeBlock.of("$L.$L", target, var.getFieldName());
+    }
+
+    private static CodeBlock getPreferenceWriteValue(PrefField var, String target) {
+        CodeBlock fieldValue = getFieldValue(var, target);
+        if (var.getTransformer() != null) {
+            return CodeBlock.of("$L.$L($L)",
+                    transformerFieldNames.get(getConverterTypeParameters(var)),
+                    var.isList() ? "convertWriteList" : "convertWrite",
+                    fieldValue);
+        } else if (var.isPrimitiveList()) {
+            return CodeBlock.of("$T.to$L($L)",
+                    ClassName.get(libPackageName, primitiveArraysClass),
+                    var.getPreferenceType().getAccessorSuffix(),
+                    fieldValue);
         }
+        return fieldValue;
     }
 
     private static void setFieldClearStatement(PrefField var, MethodSpec.Builder methodBuilder) {
@@ -0,0 +1,53 @@
+package com.armdroid.smartpreferences;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+
+import java.util.Set;
+
+public enum PreferenceType {
+
+    INT("Int", ClassName.get(Integer.class)),
+    LONG("Long", ClassName.get(Long.class)),
+    FLOAT("Float", ClassName.get(Float.class)),
+    BOOLEAN("Boolean", ClassName.get(Boolean.class)),
+    STRING("String", ClassName.get(String.class)),
+    DOUBLE("Double", ClassName.get(Double.class)),
+    STRING_SET("StringSet", ParameterizedTypeName.get(Set.class, String.class)),
+    BYTES("Bytes", ArrayTypeName.of(byte.class)),
+    INT_ARRAY("IntArray", ArrayTypeName.of(int.class)),
+    LONG_ARRAY("LongArray", ArrayTypeName.of(long.class)),
+    FLOAT_ARRAY("FloatArray", ArrayTypeName.of(float.class)),
+    DOUBLE_ARRAY("DoubleArray", ArrayTypeName.of(double.class));
+
+    private final String accessorSuffix;
+    private final TypeName storedType;
+
+    PreferenceType(String accessorSuffix, TypeName storedType) {
+        this.accessorSuffix = accessorSuffix;
+        this.storedType = storedType;
+    }
+
+    /**
+     * @return Suffix of typed get/put methods of PreferenceRepository and PreferenceEditor, i.e. "Int" for getInt/putInt.
+     */
+    public String getAccessorSuffix() {
+        return accessorSuffix;
+    }
+
+    /**
+     * @return Type of values stored in preferences (boxed for primitives), i.e. the "From" type of transformers.
+     */
+    public TypeName getStoredType() {
+        return storedType;
+    }
+
+    /**
+     * @return true if stored values can be modified in place, so that fields must not share them with synced values.
+     */
+    public boolean isMutable() {
+        return this == STRING_SET || storedType instanceof ArrayTypeName;
+    }
+}
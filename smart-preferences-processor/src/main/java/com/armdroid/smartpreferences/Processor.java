@@ -2,14 +2,17 @@ package com.armdroid.smartpreferences;
 
 import com.squareup.javapoet.JavaFile;
 
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.Messager;
@@ -19,69 +22,126 @@ import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
 
+import static javax.tools.Diagnostic.Kind.ERROR;
+
+/**
+ * Generates a {@code {Class}Preferences} binder for every class with annotated fields. Generated class depends only on
+ * its annotated class, which is its only originating element, so the processor is declared as an isolating incremental
+ * processor for Gradle in {@code META-INF/gradle/incremental.annotation.processors}. Every class is processed in the
+ * round in which it appears and its binder is written exactly once.
+ */
 public class Processor extends AbstractProcessor {
 
+    private static final Map<String, Class<? extends Annotation>> PREFERENCE_ANNOTATIONS = new LinkedHashMap<>();
+
+    static {
+        for (Class<? extends Annotation> klass : Arrays.asList(
+                IntPreference.class,
+                StringPreference.class,
+                FloatPreference.class,
+                LongPreference.class,
+                BooleanPreference.class,
+                DoublePreference.class,
+                StringSetPreference.class,
+                BytesPreference.class,
+                IntArrayPreference.class,
+                LongArrayPreference.class,
+                FloatArrayPreference.class,
+                DoubleArrayPreference.class)) {
+            PREFERENCE_ANNOTATIONS.put(klass.getCanonicalName(), klass);
+        }
+    }
+
     private Messager mMessager;
-    private Map<PrefClass, List<PrefField>> mClassFieldMapping;
 
     @Override
     public synchronized void init(ProcessingEnvironment processingEnvironment) {
         super.init(processingEnvironment);
         mMessager = processingEnvironment.getMessager();
-        mClassFieldMapping = new HashMap<>();
     }
 
     @Override
     public boolean process(Set<? extends TypeElement> set, RoundEnvironment roundEnvironment) {
-        if (processAnnotationsForType(roundEnvironment, IntPreference.class)
-            && processAnnotationsForType(roundEnvironment, StringPreference.class)
-            && processAnnotationsForType(roundEnvironment, FloatPreference.class)
-            && processAnnotationsForType(roundEnvironment, LongPreference.class)
-            && processAnnotationsForType(roundEnvironment, BooleanPreference.class)) {
-
-            for(Map.Entry<PrefClass, List<PrefField>> entry : mClassFieldMapping.entrySet()) {
-                try {
-                    JavaFile file = PreferenceClassCreator.create(entry.getKey(), entry.getValue());
-                    file.writeTo(processingEnv.getFiler());
-                } catch (Exception e) {
-//                    e.printStackTrace();
-                }
+        if (set.isEmpty()) {
+            return false;
+        }
+        for (Element rootElement : roundEnvironment.getRootElements()) {
+            if (isType(rootElement)) {
+                processType((TypeElement) rootElement);
             }
         }
         return false;
     }
 
-    private boolean processAnnotationsForType(RoundEnvironment roundEnvironment, Class<? extends Annotation> klass) {
-        Set<? extends Element> elements = roundEnvironment.getElementsAnnotatedWith(klass);
-        for (Element element : elements) {
-            Element enclosingElement = element.getEnclosingElement();
-            if (FieldValidator.isValid(element, processingEnv, mMessager)) {
-                PrefClass prefClass = new PrefClass(enclosingElement);
-                List<PrefField> vars = mClassFieldMapping.get(prefClass);
-                if (vars == null) {
-                    vars = new ArrayList<>();
+    /**
+     * Validates annotated fields of given class and writes its binder, then does the same for nested classes.
+     * Annotated fields are found in a single pass over members of the class instead of a scan of the whole round
+     * per annotation type, and methods of the class are indexed once for all of its fields. Errors of invalid fields
+     * are reported by validators and the binder of their class is not written, but remaining fields are still validated.
+     */
+    private void processType(TypeElement type) {
+        List<PrefField> vars = new ArrayList<>();
+        ClassMethodIndex methodIndex = null;
+        boolean valid = true;
+        for (Element element : type.getEnclosedElements()) {
+            if (isType(element)) {
+                processType((TypeElement) element);
+                continue;
+            }
+            for (Class<? extends Annotation> klass : getPreferenceAnnotations(element)) {
+                if (methodIndex == null) {
+                    methodIndex = new ClassMethodIndex(type);
+                }
+                if (!FieldValidator.isValid(element, methodIndex, processingEnv, mMessager)) {
+                    valid = false;
+                    continue;
                 }
-                String subscribeMethodName = MethodValidator.tryGetSubscribeMethodName(element, processingEnv.getTypeUtils(), mMessager);
+                String subscribeMethodName = MethodValidator.tryGetSubscribeMethodName(element, methodIndex, processingEnv.getTypeUtils(), mMessager);
                 if (subscribeMethodName == null) {
-                    return false;
+                    valid = false;
+                    continue;
                 }
                 vars.add(new PrefField(element, klass, subscribeMethodName, processingEnv.getTypeUtils(), processingEnv.getElementUtils()));
-                mClassFieldMapping.put(prefClass, vars);
-            } else {
-                return false;
             }
         }
-        return true;
+        if (!FieldValidator.hasUniqueMethods(vars, mMessager)) {
+            valid = false;
+        }
+        if (valid && !vars.isEmpty()) {
+            writeBinder(new PrefClass(type), vars);
+        }
+    }
+
+    private void writeBinder(PrefClass prefClass, List<PrefField> vars) {
+        try {
+            JavaFile file = PreferenceClassCreator.create(prefClass, vars);
+            file.writeTo(processingEnv.getFiler());
+        } catch (IOException e) {
+            mMessager.printMessage(ERROR,
+                    "Unable to write " + prefClass.getGeneratedClass().getTypeName() + ": " + e.getMessage(),
+                    prefClass.getElement());
+        }
+    }
+
+    private static boolean isType(Element element) {
+        return element.getKind().isClass() || element.getKind().isInterface();
+    }
+
+    private static List<Class<? extends Annotation>> getPreferenceAnnotations(Element element) {
+        return element.getAnnotationMirrors()
+                .stream()
+                .map(mirror -> PREFERENCE_ANNOTATIONS.get(
+                        ((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().toString()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
 
     @Override
     public Set<String> getSupportedAnnotationTypes() {
-        return new HashSet<>(Arrays.asList(
-                FloatPreference.class.getCanonicalName(),
-                IntPreference.class.getCanonicalName(),
-                LongPreference.class.getCanonicalName(),
-                StringPreference.class.getCanonicalName(),
-                BooleanPreference.class.getCanonicalName()));
+        Set<String> types = new HashSet<>(PREFERENCE_ANNOTATIONS.keySet());
+        types.add(PreferenceFile.class.getCanonicalName());
+        types.add(Lazy.class.getCanonicalName());
+        return types;
     }
 
     @Override
@@ -0,0 +1,214 @@
+package com.armdroid.smartpreferences;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link PreferenceMonitor} which aggregates operations per preferences file, operation and key: number of calls,
+ * size of values, latency histogram and classes which called it. Statistics can be dumped at any time, for example:
+ * <pre><code>
+ * AggregatingPreferenceMonitor monitor = new AggregatingPreferenceMonitor();
+ * SmartPreferences.setPreferenceMonitor(monitor);
+ * ...
+ * Log.d("Preferences", monitor.dump());
+ * </code></pre>
+ */
+public class AggregatingPreferenceMonitor implements PreferenceMonitor {
+
+    private final ConcurrentMap<String, KeyStats> mStats = new ConcurrentHashMap<>();
+
+    @Override
+    public void onOperation(PreferenceRepository repository,
+                            Operation operation,
+                            String key,
+                            Class<?> valueType,
+                            int size,
+                            long durationNanos,
+                            String caller) {
+        String fileName = repository.getFileName();
+        String id = fileName + '/' + operation + '/' + key;
+        KeyStats stats = mStats.get(id);
+        if (stats == null) {
+            KeyStats newStats = new KeyStats(fileName, operation, key);
+            stats = mStats.putIfAbsent(id, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+        stats.record(size, durationNanos, caller);
+    }
+
+    /**
+     * @return Statistics of all keys, sorted by number of calls, starting from the most frequent one.
+     */
+    public List<KeyStats> getStats() {
+        List<KeyStats> stats = new ArrayList<>(mStats.values());
+        Collections.sort(stats, new Comparator<KeyStats>() {
+            @Override
+            public int compare(KeyStats first, KeyStats second) {
+                long firstCount = first.getCount();
+                long secondCount = second.getCount();
+                return firstCount > secondCount ? -1 : (firstCount == secondCount ? 0 : 1);
+            }
+        });
+        return stats;
+    }
+
+    /**
+     * Removes all collected statistics.
+     */
+    public void reset() {
+        mStats.clear();
+    }
+
+    /**
+     * @return Statistics of all keys as a table, one line per key, sorted by number of calls.
+     */
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.US, "%-40s %-7s %10s %10s %10s %10s %10s %12s  %s%n",
+                "file/key", "op", "count", "avg us", "p50 us", "p99 us", "max bytes", "total bytes", "callers"));
+        for (KeyStats stats : getStats()) {
+            builder.append(String.format(Locale.US, "%-40s %-7s %10d %10.1f %10.1f %10.1f %10d %12d  %s%n",
+                    stats.getFileName() + "/" + (stats.getKey() != null ? stats.getKey() : "*"),
+                    stats.getOperation(),
+                    stats.getCount(),
+                    stats.getTotalNanos() / 1000d / Math.max(stats.getCount(), 1),
+                    stats.getPercentileNanos(0.5) / 1000d,
+                    stats.getPercentileNanos(0.99) / 1000d,
+                    stats.getMaxSize(),
+                    stats.getTotalSize(),
+                    stats.getCallers()));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Statistics of one operation with one key.
+     */
+    public static final class KeyStats {
+
+        /**
+         * Bucket i of latency histogram counts durations from 2^i to 2^(i+1) nanoseconds.
+         */
+        private static final int BUCKET_COUNT = 40;
+
+        private final String mFileName;
+        private final Operation mOperation;
+        private final String mKey;
+        private final AtomicLong mCount = new AtomicLong();
+        private final AtomicLong mTotalSize = new AtomicLong();
+        private final AtomicLong mMaxSize = new AtomicLong();
+        private final AtomicLong mTotalNanos = new AtomicLong();
+        private final AtomicLongArray mLatencyBuckets = new AtomicLongArray(BUCKET_COUNT);
+        private final ConcurrentMap<String, AtomicLong> mCallers = new ConcurrentHashMap<>();
+
+        private KeyStats(String fileName, Operation operation, String key) {
+            mFileName = fileName;
+            mOperation = operation;
+            mKey = key;
+        }
+
+        private void record(int size, long durationNanos, String caller) {
+            mCount.incrementAndGet();
+            mTotalSize.addAndGet(size);
+            long maxSize = mMaxSize.get();
+            while (size > maxSize && !mMaxSize.compareAndSet(maxSize, size)) {
+                maxSize = mMaxSize.get();
+            }
+            mTotalNanos.addAndGet(durationNanos);
+            int bucket = 63 - Long.numberOfLeadingZeros(Math.max(durationNanos, 1));
+            mLatencyBuckets.incrementAndGet(Math.min(bucket, BUCKET_COUNT - 1));
+            if (caller != null) {
+                AtomicLong callerCount = mCallers.get(caller);
+                if (callerCount == null) {
+                    AtomicLong newCallerCount = new AtomicLong();
+                    callerCount = mCallers.putIfAbsent(caller, newCallerCount);
+                    if (callerCount == null) {
+                        callerCount = newCallerCount;
+                    }
+                }
+                callerCount.incrementAndGet();
+            }
+        }
+
+        public String getFileName() {
+            return mFileName;
+        }
+
+        public Operation getOperation() {
+            return mOperation;
+        }
+
+        /**
+         * @return Key of preference, or null for operations which are not related to a single key.
+         */
+        public String getKey() {
+            return mKey;
+        }
+
+        public long getCount() {
+            return mCount.get();
+        }
+
+        /**
+         * @return Total size of values in bytes.
+         */
+        public long getTotalSize() {
+            return mTotalSize.get();
+        }
+
+        /**
+         * @return Size of the largest value in bytes.
+         */
+        public long getMaxSize() {
+            return mMaxSize.get();
+        }
+
+        public long getTotalNanos() {
+            return mTotalNanos.get();
+        }
+
+        /**
+         * Returns latency below which given fraction of calls completed. Latencies are kept in histogram with
+         * power of two buckets, so returned value is the upper bound of the bucket.
+         * @param fraction Fraction of calls, from 0 to 1.
+         * @return Latency in nanoseconds.
+         */
+        public long getPercentileNanos(double fraction) {
+            long count = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                count += mLatencyBuckets.get(i);
+            }
+            long threshold = (long) Math.ceil(count * fraction);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += mLatencyBuckets.get(i);
+                if (seen >= threshold && seen > 0) {
+                    return 1L << (i + 1);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @return Names of classes which did the operation, mapped to number of their calls.
+         */
+        public Map<String, Long> getCallers() {
+            Map<String, Long> callers = new HashMap<>();
+            for (Map.Entry<String, AtomicLong> entry : mCallers.entrySet()) {
+                callers.put(entry.getKey(), entry.getValue().get());
+            }
+            return callers;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.armdroid.smartpreferences;
+
+/**
+ * Base64 encoding of byte arrays stored as String preferences, see {@link PreferenceRepository#putBytes(String, byte[])}.
+ * Standard alphabet is used without padding and line breaks. Library has its own codec, since
+ * {@code android.util.Base64} is not available on a plain JVM and {@code java.util.Base64} is not available
+ * on older Android versions.
+ */
+final class Base64Codec {
+
+    private static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final int[] DECODING = new int[128];
+
+    static {
+        for (int i = 0; i < DECODING.length; i++) {
+            DECODING[i] = -1;
+        }
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODING[ALPHABET[i]] = i;
+        }
+    }
+
+    private Base64Codec() {
+    }
+
+    static String encode(byte[] bytes) {
+        char[] chars = new char[(bytes.length * 4 + 2) / 3];
+        int c = 0;
+        int i = 0;
+        for (; i + 2 < bytes.length; i += 3) {
+            int bits = (bytes[i] & 0xFF) << 16 | (bytes[i + 1] & 0xFF) << 8 | (bytes[i + 2] & 0xFF);
+            chars[c++] = ALPHABET[bits >>> 18];
+            chars[c++] = ALPHABET[bits >>> 12 & 0x3F];
+            chars[c++] = ALPHABET[bits >>> 6 & 0x3F];
+            chars[c++] = ALPHABET[bits & 0x3F];
+        }
+        int remaining = bytes.length - i;
+        if (remaining > 0) {
+            int bits = (bytes[i] & 0xFF) << 16 | (remaining == 2 ? (bytes[i + 1] & 0xFF) << 8 : 0);
+            chars[c++] = ALPHABET[bits >>> 18];
+            chars[c++] = ALPHABET[bits >>> 12 & 0x3F];
+            if (remaining == 2) {
+                chars[c] = ALPHABET[bits >>> 6 & 0x3F];
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * @throws IllegalArgumentException if value is not encoded by {@link #encode(byte[])}.
+     */
+    static byte[] decode(String value) {
+        int length = value.length();
+        if (length % 4 == 1) {
+            throw new IllegalArgumentException("Value is not Base64 encoded: " + value);
+        }
+        byte[] bytes = new byte[length * 3 / 4];
+        int b = 0;
+        int bits = 0;
+        int bitCount = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            int digit = c < DECODING.length ? DECODING[c] : -1;
+            if (digit < 0) {
+                throw new IllegalArgumentException("Value is not Base64 encoded: " + value);
+            }
+            bits = bits << 6 | digit;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                bytes[b++] = (byte) (bits >>> bitCount);
+            }
+        }
+        return bytes;
+    }
+}
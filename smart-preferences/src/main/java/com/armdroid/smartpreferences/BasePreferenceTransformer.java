@@ -0,0 +1,145 @@
+package com.armdroid.smartpreferences;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Base class for transformers that need type parameters at runtime. The type arguments given to the transformer
+ * (see {@link Transform#typeParam1()} and {@link Transform#typeParam2()}) are resolved by reflection only once
+ * for each transformer class and are available through {@link #getTypeParam1()}, {@link #getTypeParam2()} and
+ * {@link #getListOfTypeParam1()}. For example:
+ *
+ *<pre><code>
+ *  public abstract class GsonTransformer<To> extends BasePreferenceTransformer<String, To> {
+ *
+ *      private static final Gson GSON = new Gson();
+ *
+ *     {@literal @}Override
+ *      public To convertRead(String from) {
+ *          return GSON.fromJson(from, getTypeParam1());
+ *      }
+ *
+ *     {@literal @}Override
+ *      public List<To> convertReadList(String from) {
+ *          return GSON.fromJson(from, getListOfTypeParam1());
+ *      }
+ *
+ *      ...
+ *  }
+ *</code></pre>
+ *
+ * As a single transformer instance is shared by generated classes, a codec (such as Gson instance above) should be
+ * created once and kept in a field instead of being created on every call.
+ *
+ * @param <From> Type that is being converted
+ * @param <To> Type that is converted to
+ */
+public abstract class BasePreferenceTransformer<From, To> implements PreferenceTransformer<From, To> {
+
+    private static final Map<Class<?>, Type[]> sResolvedTypes = new ConcurrentHashMap<>();
+
+    private final Type mTypeParam1;
+    private final Type mTypeParam2;
+    private final Type mListOfTypeParam1;
+
+    protected BasePreferenceTransformer() {
+        Type[] types = resolveTypes(getClass());
+        mTypeParam1 = types[0];
+        mTypeParam2 = types[1];
+        mListOfTypeParam1 = types[2];
+    }
+
+    /**
+     * @return First type parameter of transformer, or {@link Object} if transformer is not parameterized.
+     */
+    protected Type getTypeParam1() {
+        return mTypeParam1;
+    }
+
+    /**
+     * @return Second type parameter of transformer, or {@link Object} if transformer has less than 2 type parameters.
+     */
+    protected Type getTypeParam2() {
+        return mTypeParam2;
+    }
+
+    /**
+     * @return Type of {@link List} with elements of first type parameter, i.e. List&lt;typeParam1&gt;.
+     */
+    protected Type getListOfTypeParam1() {
+        return mListOfTypeParam1;
+    }
+
+    private static Type[] resolveTypes(Class<?> clazz) {
+        Type[] types = sResolvedTypes.get(clazz);
+        if (types == null) {
+            Type[] arguments = findTypeArguments(clazz);
+            Type typeParam1 = arguments.length > 0 ? arguments[0] : Object.class;
+            Type typeParam2 = arguments.length > 1 ? arguments[1] : Object.class;
+            types = new Type[]{typeParam1, typeParam2, new ListType(typeParam1)};
+            sResolvedTypes.put(clazz, types);
+        }
+        return types;
+    }
+
+    private static Type[] findTypeArguments(Class<?> clazz) {
+        Class<?> current = clazz;
+        while (current != null && current != BasePreferenceTransformer.class) {
+            Type superClass = current.getGenericSuperclass();
+            if (superClass instanceof ParameterizedType) {
+                return ((ParameterizedType) superClass).getActualTypeArguments();
+            }
+            current = current.getSuperclass();
+        }
+        return new Type[0];
+    }
+
+    private static final class ListType implements ParameterizedType {
+
+        private final Type mElementType;
+
+        private ListType(Type elementType) {
+            mElementType = elementType;
+        }
+
+        @Override
+        public Type[] getActualTypeArguments() {
+            return new Type[]{mElementType};
+        }
+
+        @Override
+        public Type getRawType() {
+            return List.class;
+        }
+
+        @Override
+        public Type getOwnerType() {
+            return null;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ParameterizedType)) {
+                return false;
+            }
+            ParameterizedType other = (ParameterizedType) obj;
+            return other.getOwnerType() == null
+                    && List.class.equals(other.getRawType())
+                    && Arrays.equals(getActualTypeArguments(), other.getActualTypeArguments());
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(getActualTypeArguments()) ^ List.class.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return List.class.getName() + "<" + mElementType + ">";
+        }
+    }
+}
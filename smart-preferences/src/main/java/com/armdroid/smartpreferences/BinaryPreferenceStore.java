@@ -0,0 +1,190 @@
+package com.armdroid.smartpreferences;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link PreferenceStore} which keeps all values in a single binary file of typed, length-prefixed records
+ * (see {@link PreferenceRecordCodec}). Unlike XML file of {@link SharedPreferences}, the file is loaded with one
+ * bulk read and decoded in place, without a pull parser, which makes opening of large stores much faster.
+ * <br><br>
+ * Like {@link SharedPreferences}, the whole file is rewritten on change. Writes are done in background and
+ * coalesced: while one write is in progress, all batches applied in the meantime are written together by the next one.
+ * {@link Editor#commit()} waits for the write that covers its batch.
+ */
+public class BinaryPreferenceStore extends InMemoryPreferenceStore {
+
+    /**
+     * Name of directory, created by {@link Context#getDir(String, int)}, in which files are kept by {@link #factory(Context)}.
+     */
+    public static final String DIRECTORY_NAME = "smart_preferences";
+
+    private static final String FILE_SUFFIX = ".bin";
+
+    private final File mFile;
+    private final Executor mExecutor;
+    private final Object mFileLock = new Object();
+
+    // guarded by mWriteLock
+    private final Object mWriteLock = new Object();
+    private long mAppliedGeneration;
+    private long mWrittenGeneration;
+    private long mFailedGeneration;
+    private boolean mIsWriteScheduled;
+
+    private final Runnable mWriteTask = new Runnable() {
+        @Override
+        public void run() {
+            write();
+        }
+    };
+
+    private BinaryPreferenceStore(File file, Executor executor, Map<String, Object> values) {
+        super(values);
+        mFile = file;
+        mExecutor = executor;
+    }
+
+    /**
+     * Opens store kept in the file with given name.
+     * @see #open(File, String, Executor)
+     */
+    public static BinaryPreferenceStore open(File directory, String name) throws IOException {
+        return open(directory, name, PreferenceExecutors.BACKGROUND);
+    }
+
+    /**
+     * Opens store kept in the file with given name, loading all its values.
+     * @param directory Directory in which the file is kept. It is created if it does not exist.
+     * @param name Name of store, used as the prefix of its file.
+     * @param executor Executor on which the file is written.
+     * @return Opened store.
+     * @throws IOException if the file cannot be read.
+     */
+    public static BinaryPreferenceStore open(File directory, String name, Executor executor) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        File file = new File(directory, name + FILE_SUFFIX);
+        Map<String, Object> values = new HashMap<>();
+        PreferenceRecordCodec.decodeFile(file, values);
+        return new BinaryPreferenceStore(file, executor, values);
+    }
+
+    /**
+     * Returns factory that opens stores in {@link #DIRECTORY_NAME} directory of given context. When a store is
+     * opened for the first time, values of {@link SharedPreferences} with the same name are moved to it once and
+     * XML file is cleared.
+     * {@link IllegalStateException} is thrown by factory if store cannot be opened.
+     * @param context Context used to find the directory of stores and {@link SharedPreferences} to be migrated.
+     * @return Factory of {@link BinaryPreferenceStore}.
+     */
+    public static PreferenceStoreFactory factory(final Context context) {
+        return new PreferenceStoreFactory() {
+            @Override
+            public PreferenceStore create(String fileName) {
+                File directory = context.getDir(DIRECTORY_NAME, Context.MODE_PRIVATE);
+                try {
+                    File file = new File(directory, fileName + FILE_SUFFIX);
+                    if (!file.exists()) {
+                        migrateSharedPreferences(context, fileName, file);
+                    }
+                    return open(directory, fileName);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot open preferences file " + fileName, e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Binary file is written before XML file is cleared, so values are never lost. If process dies in between,
+     * XML file is left with values that are never read again.
+     */
+    private static void migrateSharedPreferences(Context context, String fileName, File file) throws IOException {
+        SharedPreferences preferences = context.getSharedPreferences(fileName, Context.MODE_PRIVATE);
+        Map<String, Object> values = new HashMap<>();
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof String || value instanceof Integer || value instanceof Long
+                    || value instanceof Float || value instanceof Boolean) {
+                values.put(entry.getKey(), value);
+            } else if (value instanceof Set) {
+                values.put(entry.getKey(), Collections.unmodifiableSet(new HashSet<>((Set<?>) value)));
+            }
+        }
+        // empty binary file is written too, so that XML file is not loaded again on every start
+        PreferenceRecordCodec.encodeFile(file, values);
+        if (!values.isEmpty()) {
+            preferences.edit().clear().commit();
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            context.deleteSharedPreferences(fileName);
+        }
+    }
+
+    @Override
+    protected long onChangesApplied(boolean clear, Map<String, Object> changes) {
+        synchronized (mWriteLock) {
+            long generation = ++mAppliedGeneration;
+            if (!mIsWriteScheduled) {
+                mIsWriteScheduled = true;
+                mExecutor.execute(mWriteTask);
+            }
+            return generation;
+        }
+    }
+
+    @Override
+    protected boolean awaitPersisted(long token) {
+        synchronized (mWriteLock) {
+            while (mWrittenGeneration < token && mFailedGeneration < token) {
+                try {
+                    mWriteLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            return mWrittenGeneration >= token;
+        }
+    }
+
+    private void write() {
+        // only one write runs at a time, so the file is never replaced with older values
+        synchronized (mFileLock) {
+            long generation;
+            synchronized (mWriteLock) {
+                mIsWriteScheduled = false;
+                generation = mAppliedGeneration;
+            }
+            // snapshot contains at least all batches up to the generation
+            Map<String, Object> values = snapshot();
+            boolean isWritten;
+            try {
+                PreferenceRecordCodec.encodeFile(mFile, values);
+                isWritten = true;
+            } catch (IOException e) {
+                isWritten = false;
+            }
+            synchronized (mWriteLock) {
+                if (isWritten) {
+                    mWrittenGeneration = Math.max(mWrittenGeneration, generation);
+                } else {
+                    mFailedGeneration = Math.max(mFailedGeneration, generation);
+                }
+                mWriteLock.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.armdroid.smartpreferences;
+
+/**
+ * Decides which changes of preference are delivered to {@link PreferenceSubscriber} when they happen faster than
+ * subscriber consumes them.
+ */
+public final class Conflation {
+
+    /**
+     * Value is ready for delivery as soon as it changes, and it replaces value which was not delivered yet, so that
+     * subscriber always receives the latest value.
+     */
+    public static final Conflation LATEST = new Conflation(0);
+
+    private final long mDelayMillis;
+
+    private Conflation(long delayMillis) {
+        mDelayMillis = delayMillis;
+    }
+
+    /**
+     * @param delayMillis Time without changes after which the latest value is ready for delivery.
+     * @return Conflation which delivers value only once preference stops changing for given time.
+     */
+    public static Conflation debounce(long delayMillis) {
+        if (delayMillis < 0) {
+            throw new IllegalArgumentException("Delay must not be negative");
+        }
+        return delayMillis == 0 ? LATEST : new Conflation(delayMillis);
+    }
+
+    public long getDelayMillis() {
+        return mDelayMillis;
+    }
+}
@@ -0,0 +1,160 @@
+package com.armdroid.smartpreferences;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of values decoded by {@link PreferenceTransformer} for fields that have {@link Transform#cacheDecoded()} set.
+ * For every preference key it remembers the last raw stored value, the decoder it was decoded by and the object it
+ * was decoded to, so that reading the same raw value with the same decoder again does not run transformer. Decoder
+ * identifies transformer type with its type parameters, since fields of different classes may map the same key to
+ * different types. Memory is bounded: size of entry is the length of raw value if it
+ * is a String or array (1 otherwise), and least recently used entries are evicted once total size exceeds
+ * maximum size.
+ * <br><br>
+ * Entries are invalidated by {@link PreferenceRepository} whenever associated key is changed through it. As lookups
+ * compare raw values, a changed preference can never be served from stale entry.
+ */
+public class DecodedValueCache {
+
+    /**
+     * Returned by {@link #get(String, Object)} when there is no decoded value for the raw value.
+     */
+    public static final Object MISSING = new Object();
+
+    private static final int DEFAULT_MAX_SIZE = 512 * 1024;
+
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private int mMaxSize = DEFAULT_MAX_SIZE;
+    private int mSize;
+
+    DecodedValueCache() {
+    }
+
+    /**
+     * Returns decoded value of raw preference value if it was cached before.
+     * @param key Identifier of object in preferences.
+     * @param decoder Identifier of transformer and its type parameters which decode the value.
+     * @param rawValue Value currently stored in preferences.
+     * @return Decoded value or {@link #MISSING} if raw value has not been decoded by the decoder before or has changed
+     * since.
+     */
+    public synchronized Object get(String key, String decoder, Object rawValue) {
+        Entry entry = mEntries.get(key);
+        if (entry == null || !entry.decoder.equals(decoder)) {
+            return MISSING;
+        }
+        if (isSameRawValue(rawValue, entry.rawValue)) {
+            return entry.decodedValue;
+        }
+        return MISSING;
+    }
+
+    /**
+     * Arrays stored by {@link PreferenceRepository#getBytes(String, byte[])} and similar methods are compared by content.
+     */
+    private static boolean isSameRawValue(Object value, Object other) {
+        if (value == other) {
+            return true;
+        } else if (value == null || other == null) {
+            return false;
+        } else if (value instanceof byte[] && other instanceof byte[]) {
+            return Arrays.equals((byte[]) value, (byte[]) other);
+        } else if (value instanceof int[] && other instanceof int[]) {
+            return Arrays.equals((int[]) value, (int[]) other);
+        } else if (value instanceof long[] && other instanceof long[]) {
+            return Arrays.equals((long[]) value, (long[]) other);
+        } else if (value instanceof float[] && other instanceof float[]) {
+            return Arrays.equals((float[]) value, (float[]) other);
+        } else if (value instanceof double[] && other instanceof double[]) {
+            return Arrays.equals((double[]) value, (double[]) other);
+        }
+        return value.equals(other);
+    }
+
+    /**
+     * Remembers decoded value of raw preference value, replacing previous entry of the same key.
+     * @param key Identifier of object in preferences.
+     * @param decoder Identifier of transformer and its type parameters which decoded the value.
+     * @param rawValue Value currently stored in preferences.
+     * @param decodedValue Value that raw value was decoded to.
+     */
+    public synchronized void put(String key, String decoder, Object rawValue, Object decodedValue) {
+        int size = sizeOf(rawValue);
+        removeEntry(key);
+        if (size > mMaxSize) {
+            return;
+        }
+        mEntries.put(key, new Entry(decoder, rawValue, decodedValue, size));
+        mSize += size;
+        trimToSize();
+    }
+
+    /**
+     * Removes cached value associated with key.
+     * @param key Identifier of object in preferences.
+     */
+    public synchronized void invalidate(String key) {
+        removeEntry(key);
+    }
+
+    /**
+     * Removes all cached values.
+     */
+    public synchronized void invalidateAll() {
+        mEntries.clear();
+        mSize = 0;
+    }
+
+    /**
+     * Sets maximum total size of cached entries, evicting least recently used entries if needed.
+     * @param maxSize Maximum size, measured in characters of raw String values and elements of raw arrays. 0 disables caching.
+     */
+    public synchronized void setMaxSize(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Maximum size cannot be negative");
+        }
+        mMaxSize = maxSize;
+        trimToSize();
+    }
+
+    private void removeEntry(String key) {
+        Entry entry = mEntries.remove(key);
+        if (entry != null) {
+            mSize -= entry.size;
+        }
+    }
+
+    private void trimToSize() {
+        Iterator<Map.Entry<String, Entry>> iterator = mEntries.entrySet().iterator();
+        while (mSize > mMaxSize && iterator.hasNext()) {
+            mSize -= iterator.next().getValue().size;
+            iterator.remove();
+        }
+    }
+
+    private static int sizeOf(Object rawValue) {
+        if (rawValue != null && rawValue.getClass().isArray()) {
+            return Math.max(Array.getLength(rawValue), 1);
+        }
+        return rawValue instanceof String ? Math.max(((String) rawValue).length(), 1) : 1;
+    }
+
+    private static final class Entry {
+
+        private final String decoder;
+        private final Object rawValue;
+        private final Object decodedValue;
+        private final int size;
+
+        private Entry(String decoder, Object rawValue, Object decodedValue, int size) {
+            this.decoder = decoder;
+            this.rawValue = rawValue;
+            this.decodedValue = decodedValue;
+            this.size = size;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.armdroid.smartpreferences;
+
+/**
+ * Decides when writes of {@link PreferenceRepository} are written to {@link PreferenceStore}. By default, every
+ * {@link PreferenceRepository#put(String, Object)} and every {@link PreferenceEditor#apply()} is written immediately.
+ * With other policies, writes are kept in a buffer of the repository, where later writes of a key replace earlier
+ * ones, and the buffer is written as a single batch once the delay passes, once it holds given number of writes,
+ * or when {@link PreferenceRepository#flush()} is called, whichever comes first. Reads of the repository see
+ * buffered writes, while listeners are notified once they are written.
+ * <br><br>
+ * Buffered writes are lost if process is killed before they are written, so buffering should be combined with
+ * {@link SmartPreferences#flushOnActivityPause(android.app.Application)}.
+ */
+public final class FlushPolicy {
+
+    /**
+     * Every write is written immediately, which is the default.
+     */
+    public static final FlushPolicy IMMEDIATE = new FlushPolicy(0, 1);
+
+    private final long mDelayMillis;
+    private final int mMaxPendingWrites;
+
+    private FlushPolicy(long delayMillis, int maxPendingWrites) {
+        mDelayMillis = delayMillis;
+        mMaxPendingWrites = maxPendingWrites;
+    }
+
+    /**
+     * @param delayMillis Time after the first buffered write, after which buffer is written. Must be positive, since
+     *                    buffer without delay limit would be written only when it is flushed explicitly.
+     * @return Policy which writes buffer once the delay passes.
+     */
+    public static FlushPolicy window(long delayMillis) {
+        if (delayMillis <= 0) {
+            throw new IllegalArgumentException("Delay must be positive");
+        }
+        return of(delayMillis, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param maxPendingWrites Number of writes after which buffer is written.
+     * @return Policy which writes buffer only once it holds given number of writes or when it is flushed explicitly.
+     */
+    public static FlushPolicy count(int maxPendingWrites) {
+        return of(0, maxPendingWrites);
+    }
+
+    /**
+     * @param delayMillis Time after the first buffered write, after which buffer is written, or 0 for no delay limit.
+     * @param maxPendingWrites Number of writes after which buffer is written.
+     * @return Policy which writes buffer once the delay passes or once it holds given number of writes.
+     */
+    public static FlushPolicy of(long delayMillis, int maxPendingWrites) {
+        if (delayMillis < 0) {
+            throw new IllegalArgumentException("Delay must not be negative");
+        }
+        if (maxPendingWrites < 1) {
+            throw new IllegalArgumentException("Number of pending writes must be positive");
+        }
+        return maxPendingWrites == 1 ? IMMEDIATE : new FlushPolicy(delayMillis, maxPendingWrites);
+    }
+
+    public long getDelayMillis() {
+        return mDelayMillis;
+    }
+
+    public int getMaxPendingWrites() {
+        return mMaxPendingWrites;
+    }
+
+    boolean isImmediate() {
+        return mMaxPendingWrites == 1;
+    }
+}
@@ -0,0 +1,240 @@
+package com.armdroid.smartpreferences;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * {@link PreferenceStore} which keeps values only in memory. It does not depend on Android framework, so it can be
+ * used to run generated classes in tests and benchmarks on a plain JVM. Reads are lock-free, batches of changes
+ * are applied atomically and listeners are notified synchronously on the thread which applied the batch.
+ * <br><br>
+ * Subclasses can persist values by overriding {@link #onChangesApplied(boolean, Map)} and {@link #awaitPersisted(long)}.
+ */
+public class InMemoryPreferenceStore implements PreferenceStore {
+
+    private final ConcurrentHashMap<String, Object> mValues;
+    private final CopyOnWriteArrayList<OnChangeListener> mListeners = new CopyOnWriteArrayList<>();
+    private final Object mLock = new Object();
+
+    public InMemoryPreferenceStore() {
+        mValues = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @param values Initial key/value pairs of the store, for example loaded from disk by subclass.
+     */
+    protected InMemoryPreferenceStore(Map<String, ?> values) {
+        mValues = new ConcurrentHashMap<>(values);
+    }
+
+    @Override
+    public String getString(String key, String defaultValue) {
+        String value = (String) mValues.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Set<String> getStringSet(String key, Set<String> defaultValue) {
+        Set<String> value = (Set<String>) mValues.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public int getInt(String key, int defaultValue) {
+        Integer value = (Integer) mValues.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        Long value = (Long) mValues.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public float getFloat(String key, float defaultValue) {
+        Float value = (Float) mValues.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Boolean value = (Boolean) mValues.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return mValues.containsKey(key);
+    }
+
+    @Override
+    public Map<String, ?> getAll() {
+        return Collections.unmodifiableMap(new HashMap<>(mValues));
+    }
+
+    @Override
+    public Map<String, ?> getValues(String... keys) {
+        Map<String, Object> values = new HashMap<>(keys.length * 2);
+        // batches are applied under the same lock, so none of them is seen partially
+        synchronized (mLock) {
+            for (String key : keys) {
+                Object value = mValues.get(key);
+                if (value != null) {
+                    values.put(key, value);
+                }
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public Editor edit() {
+        return new InMemoryEditor();
+    }
+
+    @Override
+    public void registerOnChangeListener(OnChangeListener listener) {
+        mListeners.addIfAbsent(listener);
+    }
+
+    @Override
+    public void unregisterOnChangeListener(OnChangeListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * Unlike {@link #getAll()}, returned copy never contains a part of a batch which is being applied concurrently.
+     * @return Copy of all key/value pairs.
+     */
+    protected Map<String, Object> snapshot() {
+        synchronized (mLock) {
+            return new HashMap<>(mValues);
+        }
+    }
+
+    /**
+     * Called after a batch of changes was applied to memory. Calls are made in the order in which batches were applied,
+     * while holding a lock that blocks other batches, so implementation should only start persisting changes and
+     * finish it asynchronously.
+     * @param clear true if all key/value pairs were removed before other changes were applied.
+     * @param changes Changed keys mapped to new values. Removed keys are mapped to null.
+     * @return Token which is passed to {@link #awaitPersisted(long)} if changes were committed.
+     */
+    protected long onChangesApplied(boolean clear, Map<String, Object> changes) {
+        return 0;
+    }
+
+    /**
+     * Called by {@link Editor#commit()} without holding any lock. Implementation should block until changes
+     * are persisted.
+     * @param token Token returned by {@link #onChangesApplied(boolean, Map)}.
+     * @return true if changes were persisted, false otherwise.
+     */
+    protected boolean awaitPersisted(long token) {
+        return true;
+    }
+
+    private long applyChanges(boolean clear, Map<String, Object> changes) {
+        List<String> changedKeys = new ArrayList<>(changes.size());
+        long token;
+        synchronized (mLock) {
+            if (clear) {
+                mValues.clear();
+            }
+            for (Map.Entry<String, Object> change : changes.entrySet()) {
+                Object value = change.getValue();
+                boolean isChanged = value == null
+                        ? mValues.remove(change.getKey()) != null
+                        : !value.equals(mValues.put(change.getKey(), value));
+                if (isChanged) {
+                    changedKeys.add(change.getKey());
+                }
+            }
+            token = onChangesApplied(clear, changes);
+        }
+        for (OnChangeListener listener : mListeners) {
+            if (clear) {
+                listener.onChanged(this, null);
+            }
+            for (String key : changedKeys) {
+                listener.onChanged(this, key);
+            }
+        }
+        return token;
+    }
+
+    private class InMemoryEditor implements Editor {
+
+        // removed keys are mapped to null
+        private final Map<String, Object> mChanges = new LinkedHashMap<>();
+        private boolean mClear;
+
+        @Override
+        public Editor putString(String key, String value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putStringSet(String key, Set<String> values) {
+            mChanges.put(key, values != null ? Collections.unmodifiableSet(new HashSet<>(values)) : null);
+            return this;
+        }
+
+        @Override
+        public Editor putInt(String key, int value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putLong(String key, long value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putFloat(String key, float value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putBoolean(String key, boolean value) {
+            mChanges.put(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor remove(String key) {
+            mChanges.put(key, null);
+            return this;
+        }
+
+        @Override
+        public Editor clear() {
+            mClear = true;
+            return this;
+        }
+
+        @Override
+        public void apply() {
+            applyChanges(mClear, mChanges);
+        }
+
+        @Override
+        public boolean commit() {
+            return awaitPersisted(applyChanges(mClear, mChanges));
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.armdroid.smartpreferences;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link PreferenceStore} which appends every batch of changes to a log file instead of rewriting all preferences,
+ * so cost of a write depends only on the size of the change. All values are kept in memory, the log is replayed
+ * when store is opened.
+ * <br><br>
+ * Log is written with {@link FileChannel} and synced to disk in groups: {@link Editor#apply()} returns as soon as
+ * changes are appended and a single background sync covers all batches appended in the meantime, while
+ * {@link Editor#commit()} waits for the sync that covers its batch.
+ * <br><br>
+ * Once the log grows over compaction threshold, it is set aside and new writes go to a fresh log, while all values
+ * are written to a snapshot file in background. Files of store named "name" are:
+ * <pre>
+ * name.snapshot - values at the time of the last compaction
+ * name.log.old  - log which is being compacted, present only until compaction is finished
+ * name.log      - log of changes made after the last compaction
+ * </pre>
+ * If snapshot cannot be written, old log is kept and compaction is retried once log grows by another threshold.
+ * Failure of a write or sync fails only {@link Editor#commit()} of batches it covered.
+ * All files use format of {@link PreferenceRecordCodec}.
+ */
+public class LogPreferenceStore extends InMemoryPreferenceStore {
+
+    /**
+     * Default size of log in bytes after which it is compacted.
+     */
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 256 * 1024;
+
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String OLD_LOG_SUFFIX = ".log.old";
+    private static final String LOG_SUFFIX = ".log";
+
+    private final File mDirectory;
+    private final String mName;
+    private final long mCompactionThreshold;
+    private final Executor mExecutor;
+
+    // guarded by mLogLock
+    private final Object mLogLock = new Object();
+    private FileChannel mLog;
+    private long mLogSize;
+    private long mWrittenBytes;
+    private boolean mIsCompacting;
+    // grows after failed compaction, so that it is retried once log grows by another threshold
+    private long mCompactionSize;
+
+    // guarded by mSyncLock
+    private final Object mSyncLock = new Object();
+    private long mSyncedBytes;
+    private boolean mIsSyncScheduled;
+    // batches ending in (mFailedFromBytes, mFailedToBytes] were covered by the last failed sync
+    private long mFailedFromBytes;
+    private long mFailedToBytes;
+
+    private final Runnable mSyncTask = new Runnable() {
+        @Override
+        public void run() {
+            sync();
+        }
+    };
+
+    private LogPreferenceStore(File directory, String name, long compactionThreshold, Executor executor,
+                               Map<String, Object> values, FileChannel log) throws IOException {
+        super(values);
+        mDirectory = directory;
+        mName = name;
+        mCompactionThreshold = compactionThreshold;
+        mExecutor = executor;
+        mLog = log;
+        mLogSize = log.size();
+        mCompactionSize = compactionThreshold;
+    }
+
+    /**
+     * Opens store with {@link #DEFAULT_COMPACTION_THRESHOLD}.
+     * @see #open(File, String, long, Executor)
+     */
+    public static LogPreferenceStore open(File directory, String name) throws IOException {
+        return open(directory, name, DEFAULT_COMPACTION_THRESHOLD, PreferenceExecutors.BACKGROUND);
+    }
+
+    /**
+     * Opens store kept in files with given name, replaying its log. Frames torn by crash at the end of log are dropped.
+     * @param directory Directory in which files of store are kept. It is created if it does not exist.
+     * @param name Name of store, used as the prefix of its files.
+     * @param compactionThreshold Size of log in bytes after which it is compacted.
+     * @param executor Executor on which log is synced and compacted.
+     * @return Opened store.
+     * @throws IOException if files of store cannot be read or created.
+     */
+    public static LogPreferenceStore open(File directory, String name, long compactionThreshold, Executor executor) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create directory " + directory);
+        }
+        File snapshotFile = new File(directory, name + SNAPSHOT_SUFFIX);
+        File oldLogFile = new File(directory, name + OLD_LOG_SUFFIX);
+        File logFile = new File(directory, name + LOG_SUFFIX);
+
+        Map<String, Object> values = new HashMap<>();
+        PreferenceRecordCodec.decodeFile(snapshotFile, values);
+        PreferenceRecordCodec.decodeFile(oldLogFile, values);
+        long validLogSize = PreferenceRecordCodec.decodeFile(logFile, values);
+
+        FileChannel log = new RandomAccessFile(logFile, "rw").getChannel();
+        try {
+            if (oldLogFile.exists()) {
+                // previous compaction did not finish, so it is done now with everything replayed
+                PreferenceRecordCodec.encodeFile(snapshotFile, values);
+                PreferenceRecordCodec.deleteFile(oldLogFile);
+                validLogSize = 0;
+            }
+            log.truncate(validLogSize);
+            log.position(validLogSize);
+            return new LogPreferenceStore(directory, name, compactionThreshold, executor, values, log);
+        } catch (IOException | RuntimeException e) {
+            log.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns factory that opens stores in given directory. {@link IllegalStateException} is thrown by factory
+     * if store cannot be opened.
+     * @param directory Directory in which files of stores are kept.
+     * @return Factory of {@link LogPreferenceStore}.
+     */
+    public static PreferenceStoreFactory factory(final File directory) {
+        return new PreferenceStoreFactory() {
+            @Override
+            public PreferenceStore create(String fileName) {
+                try {
+                    return open(directory, fileName);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Cannot open preferences file " + fileName, e);
+                }
+            }
+        };
+    }
+
+    /**
+     * @return Size of current log in bytes.
+     */
+    public long getLogSize() {
+        synchronized (mLogLock) {
+            return mLogSize;
+        }
+    }
+
+    /**
+     * Waits for compaction in progress, syncs log to disk and closes it. Store must not be changed after it is closed.
+     */
+    public void close() throws IOException {
+        synchronized (mLogLock) {
+            // snapshot written after close would race with the store opened next
+            while (mIsCompacting) {
+                try {
+                    mLogLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for compaction");
+                }
+            }
+            mLog.force(false);
+            mLog.close();
+        }
+    }
+
+    @Override
+    protected long onChangesApplied(boolean clear, Map<String, Object> changes) {
+        byte[] frame = PreferenceRecordCodec.encodeFrame(clear, changes);
+        long written;
+        synchronized (mLogLock) {
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(frame);
+                while (buffer.hasRemaining()) {
+                    mLog.write(buffer);
+                }
+            } catch (IOException e) {
+                dropPartialFrame();
+                return -1;
+            }
+            mLogSize += frame.length;
+            mWrittenBytes += frame.length;
+            written = mWrittenBytes;
+            if (mLogSize > mCompactionSize && !mIsCompacting) {
+                try {
+                    startCompaction();
+                } catch (IOException e) {
+                    // frame is written, log keeps growing until compaction is retried
+                    mCompactionSize = mLogSize + mCompactionThreshold;
+                }
+            }
+        }
+        requestSync();
+        return written;
+    }
+
+    /**
+     * Truncates log to its size before the frame whose write failed, as replay stops at a torn frame and would drop
+     * frames appended after it. Called with mLogLock held.
+     */
+    private void dropPartialFrame() {
+        try {
+            mLog.truncate(mLogSize);
+            mLog.position(mLogSize);
+        } catch (IOException e) {
+            // log is unusable, so following writes fail as well
+        }
+    }
+
+    @Override
+    protected boolean awaitPersisted(long token) {
+        if (token < 0) {
+            return false;
+        }
+        synchronized (mSyncLock) {
+            while (true) {
+                // failure is checked first, as later sync may succeed while the sync covering this batch failed
+                if (token > mFailedFromBytes && token <= mFailedToBytes) {
+                    return false;
+                }
+                if (mSyncedBytes >= token) {
+                    return true;
+                }
+                try {
+                    mSyncLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void requestSync() {
+        synchronized (mSyncLock) {
+            if (mIsSyncScheduled) {
+                return;
+            }
+            mIsSyncScheduled = true;
+        }
+        mExecutor.execute(mSyncTask);
+    }
+
+    private void sync() {
+        synchronized (mSyncLock) {
+            // batches appended from now on are not guaranteed to be covered, so they schedule another sync
+            mIsSyncScheduled = false;
+        }
+        FileChannel log;
+        long written;
+        synchronized (mLogLock) {
+            log = mLog;
+            written = mWrittenBytes;
+        }
+        try {
+            log.force(false);
+        } catch (ClosedChannelException e) {
+            // log was set aside by compaction or closed, both of them sync it before closing
+        } catch (IOException e) {
+            fail(written);
+            return;
+        }
+        markSynced(written);
+    }
+
+    private void markSynced(long written) {
+        synchronized (mSyncLock) {
+            if (written > mSyncedBytes) {
+                mSyncedBytes = written;
+            }
+            mSyncLock.notifyAll();
+        }
+    }
+
+    /**
+     * Fails batches which are not synced yet and which were written before the failed sync started, later batches are
+     * synced by following syncs.
+     */
+    private void fail(long written) {
+        synchronized (mSyncLock) {
+            mFailedFromBytes = mSyncedBytes;
+            mFailedToBytes = written;
+            mSyncLock.notifyAll();
+        }
+    }
+
+    /**
+     * Sets current log aside and starts a new one. Called while applying changes, so values taken here contain
+     * exactly the changes written to the log which is set aside.
+     */
+    private void startCompaction() throws IOException {
+        File oldLogFile = new File(mDirectory, mName + OLD_LOG_SUFFIX);
+        File logFile = new File(mDirectory, mName + LOG_SUFFIX);
+        if (oldLogFile.exists()) {
+            // Previous compaction failed, so the old log must not be replaced. Snapshot of values covers both logs,
+            // which replay to the same values on top of it, and current log is set aside by the next compaction.
+            writeSnapshot(oldLogFile);
+            return;
+        }
+        mLog.force(false);
+        markSynced(mWrittenBytes);
+        mLog.close();
+        if (!logFile.renameTo(oldLogFile)) {
+            // log keeps growing until compaction is possible
+            mLog = new RandomAccessFile(logFile, "rw").getChannel();
+            mLog.position(mLog.size());
+            mCompactionSize = mLogSize + mCompactionThreshold;
+            return;
+        }
+        mLog = new RandomAccessFile(logFile, "rw").getChannel();
+        mLogSize = 0;
+        mCompactionSize = mCompactionThreshold;
+        writeSnapshot(oldLogFile);
+    }
+
+    /**
+     * Writes values to snapshot file in background and deletes old log once it is written. Called with mLogLock held.
+     */
+    private void writeSnapshot(final File oldLogFile) {
+        mIsCompacting = true;
+        final Map<String, ?> values = snapshot();
+        mExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean isWritten = false;
+                try {
+                    PreferenceRecordCodec.encodeFile(new File(mDirectory, mName + SNAPSHOT_SUFFIX), values);
+                    PreferenceRecordCodec.deleteFile(oldLogFile);
+                    isWritten = true;
+                } catch (IOException e) {
+                    // old log is kept, so compaction is retried later or finished when store is opened next time
+                } finally {
+                    synchronized (mLogLock) {
+                        mIsCompacting = false;
+                        if (!isWritten) {
+                            mCompactionSize = mLogSize + mCompactionThreshold;
+                        }
+                        mLogLock.notifyAll();
+                    }
+                }
+            }
+        });
+    }
+}
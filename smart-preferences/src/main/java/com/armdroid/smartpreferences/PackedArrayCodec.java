@@ -0,0 +1,217 @@
+package com.armdroid.smartpreferences;
+
+/**
+ * Binary format of primitive arrays stored as String preferences, see
+ * {@link PreferenceRepository#putIntArray(String, int[])} and similar methods. Encoded arrays are Base64 encoded
+ * with {@link Base64Codec}:
+ * <pre>
+ * array: [byte format][varint length][values]
+ * </pre>
+ * Int and long values are stored as differences from previous value, zigzag encoded into varints, so that sorted
+ * arrays, counters and timestamps take one or two bytes per value. Float and double values are stored as their raw
+ * bits, 4 and 8 bytes per value, so they are read back exactly.
+ */
+final class PackedArrayCodec {
+
+    private static final byte FORMAT_INT = 1;
+    private static final byte FORMAT_LONG = 2;
+    private static final byte FORMAT_FLOAT = 3;
+    private static final byte FORMAT_DOUBLE = 4;
+
+    // format byte and length of 5 bytes at most
+    private static final int HEADER_MAX_SIZE = 6;
+
+    private PackedArrayCodec() {
+    }
+
+    static String encodeInts(int[] values) {
+        byte[] bytes = new byte[HEADER_MAX_SIZE + values.length * 5];
+        int position = writeHeader(bytes, FORMAT_INT, values.length);
+        int previous = 0;
+        for (int value : values) {
+            int delta = value - previous;
+            position = writeVarint(bytes, position, ((delta << 1) ^ (delta >> 31)) & 0xFFFFFFFFL);
+            previous = value;
+        }
+        return Base64Codec.encode(trim(bytes, position));
+    }
+
+    static String encodeLongs(long[] values) {
+        byte[] bytes = new byte[HEADER_MAX_SIZE + values.length * 10];
+        int position = writeHeader(bytes, FORMAT_LONG, values.length);
+        long previous = 0;
+        for (long value : values) {
+            long delta = value - previous;
+            position = writeVarint(bytes, position, (delta << 1) ^ (delta >> 63));
+            previous = value;
+        }
+        return Base64Codec.encode(trim(bytes, position));
+    }
+
+    static String encodeFloats(float[] values) {
+        byte[] bytes = new byte[HEADER_MAX_SIZE + values.length * 4];
+        int position = writeHeader(bytes, FORMAT_FLOAT, values.length);
+        for (float value : values) {
+            int bits = Float.floatToRawIntBits(value);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[position++] = (byte) (bits >>> shift);
+            }
+        }
+        return Base64Codec.encode(trim(bytes, position));
+    }
+
+    static String encodeDoubles(double[] values) {
+        byte[] bytes = new byte[HEADER_MAX_SIZE + values.length * 8];
+        int position = writeHeader(bytes, FORMAT_DOUBLE, values.length);
+        for (double value : values) {
+            long bits = Double.doubleToRawLongBits(value);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[position++] = (byte) (bits >>> shift);
+            }
+        }
+        return Base64Codec.encode(trim(bytes, position));
+    }
+
+    /**
+     * @throws IllegalArgumentException if value is not encoded by {@link #encodeInts(int[])}.
+     */
+    static int[] decodeInts(String value) {
+        Reader reader = new Reader(value, FORMAT_INT, 1);
+        int[] values = new int[reader.mLength];
+        int previous = 0;
+        for (int i = 0; i < values.length; i++) {
+            int zigzag = (int) reader.readVarint(5);
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            values[i] = previous;
+        }
+        reader.checkEnd();
+        return values;
+    }
+
+    /**
+     * @throws IllegalArgumentException if value is not encoded by {@link #encodeLongs(long[])}.
+     */
+    static long[] decodeLongs(String value) {
+        Reader reader = new Reader(value, FORMAT_LONG, 1);
+        long[] values = new long[reader.mLength];
+        long previous = 0;
+        for (int i = 0; i < values.length; i++) {
+            long zigzag = reader.readVarint(10);
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            values[i] = previous;
+        }
+        reader.checkEnd();
+        return values;
+    }
+
+    /**
+     * @throws IllegalArgumentException if value is not encoded by {@link #encodeFloats(float[])}.
+     */
+    static float[] decodeFloats(String value) {
+        Reader reader = new Reader(value, FORMAT_FLOAT, 4);
+        float[] values = new float[reader.mLength];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Float.intBitsToFloat((int) reader.readFixed(4));
+        }
+        reader.checkEnd();
+        return values;
+    }
+
+    /**
+     * @throws IllegalArgumentException if value is not encoded by {@link #encodeDoubles(double[])}.
+     */
+    static double[] decodeDoubles(String value) {
+        Reader reader = new Reader(value, FORMAT_DOUBLE, 8);
+        double[] values = new double[reader.mLength];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Double.longBitsToDouble(reader.readFixed(8));
+        }
+        reader.checkEnd();
+        return values;
+    }
+
+    private static int writeHeader(byte[] bytes, byte format, int length) {
+        bytes[0] = format;
+        return writeVarint(bytes, 1, length);
+    }
+
+    private static int writeVarint(byte[] bytes, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+        return position;
+    }
+
+    private static byte[] trim(byte[] bytes, int length) {
+        if (bytes.length == length) {
+            return bytes;
+        }
+        byte[] trimmed = new byte[length];
+        System.arraycopy(bytes, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    private static final class Reader {
+
+        private final String mValue;
+        private final byte[] mBytes;
+        private final int mLength;
+        private int mPosition;
+
+        /**
+         * @param minValueSize Minimum size of encoded value, used to reject length that does not fit the bytes
+         *                     before array is allocated.
+         */
+        Reader(String value, byte format, int minValueSize) {
+            mValue = value;
+            mBytes = Base64Codec.decode(value);
+            if (mBytes.length == 0 || mBytes[0] != format) {
+                throw invalid();
+            }
+            mPosition = 1;
+            long length = readVarint(5);
+            if (length > (mBytes.length - mPosition) / minValueSize) {
+                throw invalid();
+            }
+            mLength = (int) length;
+        }
+
+        long readVarint(int maxSize) {
+            long value = 0;
+            for (int i = 0; i < maxSize; i++) {
+                if (mPosition == mBytes.length) {
+                    throw invalid();
+                }
+                byte b = mBytes[mPosition++];
+                value |= (long) (b & 0x7F) << (i * 7);
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw invalid();
+        }
+
+        long readFixed(int size) {
+            if (mBytes.length - mPosition < size) {
+                throw invalid();
+            }
+            long value = 0;
+            for (int i = 0; i < size; i++) {
+                value = value << 8 | (mBytes[mPosition++] & 0xFF);
+            }
+            return value;
+        }
+
+        void checkEnd() {
+            if (mPosition != mBytes.length) {
+                throw invalid();
+            }
+        }
+
+        private IllegalArgumentException invalid() {
+            return new IllegalArgumentException("Value is not an encoded array of this type: " + mValue);
+        }
+    }
+}
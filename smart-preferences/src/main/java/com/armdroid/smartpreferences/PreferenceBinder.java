@@ -1,5 +1,7 @@
 package com.armdroid.smartpreferences;
 
+import java.util.concurrent.Executor;
+
 /**
  * Interface which provides contract between generated Preferences class and target class
  */
@@ -8,31 +10,59 @@ public interface PreferenceBinder {
     /**
      * Reads values from {@link android.content.SharedPreferences} and sets to fields that have one of the
      * following annotations in target class:
-     * {@link IntPreference}, {@link FloatPreference}, {@link LongPreference}, {@link StringPreference}, {@link BooleanPreference}.
+     * {@link IntPreference}, {@link FloatPreference}, {@link LongPreference}, {@link StringPreference}, {@link BooleanPreference},
+     * {@link DoublePreference}, {@link StringSetPreference}, {@link BytesPreference}, {@link IntArrayPreference},
+     * {@link LongArrayPreference}, {@link FloatArrayPreference}, {@link DoubleArrayPreference}.
      */
     void readAll();
 
     /**
      * Writes values into {@link android.content.SharedPreferences} from fields that have one of the
      * following annotations in target class:
-     * {@link IntPreference}, {@link FloatPreference}, {@link LongPreference}, {@link StringPreference}, {@link BooleanPreference}.
+     * {@link IntPreference}, {@link FloatPreference}, {@link LongPreference}, {@link StringPreference}, {@link BooleanPreference},
+     * {@link DoublePreference}, {@link StringSetPreference}, {@link BytesPreference}, {@link IntArrayPreference},
+     * {@link LongArrayPreference}, {@link FloatArrayPreference}, {@link DoubleArrayPreference}.
+     * All values are written in a single transaction (see {@link PreferenceEditor}).
+     * <br><br>
+     * Only fields whose values (encoded values for fields with {@link Transform}) differ from the values this instance
+     * last read or wrote are written. If no field has changed, nothing is written at all.
      */
     void writeAll();
 
     /**
      * Observes changes of preferences of fields that have {@link Observe} annotation in target class along with one of
      * the following annotations:
-     * {@link IntPreference}, {@link FloatPreference}, {@link LongPreference}, {@link StringPreference}, {@link BooleanPreference}.
+     * {@link IntPreference}, {@link FloatPreference}, {@link LongPreference}, {@link StringPreference}, {@link BooleanPreference},
+     * {@link DoublePreference}, {@link StringSetPreference}, {@link BytesPreference}, {@link IntArrayPreference},
+     * {@link LongArrayPreference}, {@link FloatArrayPreference}, {@link DoubleArrayPreference}.
+     * Instance is registered in {@link PreferenceRepository} only for the keys of these fields (see
+     * {@link PreferenceRepository#registerPreferenceChangeListener(PreferenceChangeListener, String...)}).
      */
     void observeChanges();
 
     /**
      * Stops observation of changes of preferences of fields that have {@link Observe} annotation in target class along with one of
      * the following annotations:
-     * {@link IntPreference}, {@link FloatPreference}, {@link LongPreference}, {@link StringPreference}, {@link BooleanPreference}.
+     * {@link IntPreference}, {@link FloatPreference}, {@link LongPreference}, {@link StringPreference}, {@link BooleanPreference},
+     * {@link DoublePreference}, {@link StringSetPreference}, {@link BytesPreference}, {@link IntArrayPreference},
+     * {@link LongArrayPreference}, {@link FloatArrayPreference}, {@link DoubleArrayPreference}.
      */
     void stopObserveChanges();
 
+    /**
+     * Sets executors on which observed changes are handled. By default, changed value is read, decoded by its
+     * {@link PreferenceTransformer}, set to the field and passed to {@link Subscribe} method synchronously, on the thread
+     * which delivered the change. With executors set, value is read and decoded on decodeExecutor, and it is set to
+     * the field, passed to {@link Subscribe} method and emitted to {@link PreferenceStream} on deliveryExecutor,
+     * for example main thread executor. Both executors are used through {@link SerialExecutor} instances created once
+     * per instance of generated class, so changes are delivered in the order in which they happened, also when
+     * executors are replaced while changes are pending.
+     * @param decodeExecutor Executor on which changed values are read and decoded, or null to handle changes
+     *                       synchronously, which is the default.
+     * @param deliveryExecutor Executor on which decoded values are delivered to target class instance.
+     */
+    void setChangeExecutors(Executor decodeExecutor, Executor deliveryExecutor);
+
     /**
      * Returns an instance that can be used for more actions with {@link android.content.SharedPreferences} if generated class
      * actions are not enough.
@@ -43,7 +73,9 @@ public interface PreferenceBinder {
     /**
      * Sets default values to fields that have one of the following annotations in target class. Values are
      * specified by {@link DefaultValue}.
-     * {@link IntPreference}, {@link FloatPreference}, {@link LongPreference}, {@link StringPreference}, {@link BooleanPreference}.
+     * {@link IntPreference}, {@link FloatPreference}, {@link LongPreference}, {@link StringPreference}, {@link BooleanPreference},
+     * {@link DoublePreference}, {@link StringSetPreference}, {@link BytesPreference}, {@link IntArrayPreference},
+     * {@link LongArrayPreference}, {@link FloatArrayPreference}, {@link DoubleArrayPreference}.
      */
     void setTypeDefaults();
 
@@ -0,0 +1,20 @@
+package com.armdroid.smartpreferences;
+
+/**
+ * Callback of {@link PreferenceFuture}, which is invoked once the result is available.
+ * @param <T> Type of the result.
+ */
+public interface PreferenceCallback<T> {
+
+    /**
+     * Called when operation was completed successfully.
+     * @param result Result of the operation.
+     */
+    void onReady(T result);
+
+    /**
+     * Called when operation failed, for example when preferences could not be loaded.
+     * @param error Cause of the failure.
+     */
+    void onFailure(Throwable error);
+}
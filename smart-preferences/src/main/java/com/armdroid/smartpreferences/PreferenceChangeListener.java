@@ -0,0 +1,17 @@
+package com.armdroid.smartpreferences;
+
+/**
+ * Listener of preference changes which is registered in {@link PreferenceRepository} for a set of keys (see
+ * {@link PreferenceRepository#registerPreferenceChangeListener(PreferenceChangeListener, String...)}). Unlike
+ * {@link android.content.SharedPreferences.OnSharedPreferenceChangeListener}, it is invoked only for the keys it
+ * was registered for.
+ */
+public interface PreferenceChangeListener {
+
+    /**
+     * Called when value associated with one of the registered keys was changed, added or removed.
+     * @param repository Repository in which change happened.
+     * @param key Key of changed preference.
+     */
+    void onPreferenceChanged(PreferenceRepository repository, String key);
+}
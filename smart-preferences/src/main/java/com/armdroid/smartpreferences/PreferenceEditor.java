@@ -0,0 +1,286 @@
+package com.armdroid.smartpreferences;
+
+import java.util.Set;
+
+/**
+ * Collects a batch of changes to {@link PreferenceStore} and commits them in one transaction. Unlike
+ * {@link PreferenceRepository#put(String, Object)}, which opens a new {@link PreferenceStore.Editor} for every
+ * value, all changes made through one instance are written to disk with a single {@link #apply()} or {@link #commit()}.
+ * Instances are obtained with {@link PreferenceRepository#edit()}.
+ */
+public class PreferenceEditor {
+
+    private final PreferenceRepository mRepository;
+    private final PreferenceStore.Editor mEditor;
+    private final DecodedValueCache mDecodedValueCache;
+    // total size of values put into the batch, counted only while it is reported to PreferenceMonitor
+    private int mBatchSize;
+
+    PreferenceEditor(PreferenceRepository repository, PreferenceStore.Editor editor, DecodedValueCache decodedValueCache) {
+        mRepository = repository;
+        mEditor = editor;
+        mDecodedValueCache = decodedValueCache;
+    }
+
+    /**
+     * Adds value with associated key to the batch.
+     * Value can be one of the following: String, int, long, float, boolean, double and their boxed types,
+     * Set&lt;String&gt;, byte[], int[], long[], float[] and double[].
+     * {@link IllegalArgumentException} is thrown in case the type of value is not in the list above.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved.
+     * @return This instance, so that calls can be chained.
+     */
+    @SuppressWarnings("unchecked")
+    public PreferenceEditor put(String key, Object value) {
+        if (value instanceof String) {
+            return putString(key, (String) value);
+        } else if (value instanceof Integer) {
+            return putInt(key, (Integer) value);
+        } else if (value instanceof Long) {
+            return putLong(key, (Long) value);
+        } else if (value instanceof Float) {
+            return putFloat(key, (Float) value);
+        } else if (value instanceof Boolean) {
+            return putBoolean(key, (Boolean) value);
+        } else if (value instanceof Double) {
+            return putDouble(key, (Double) value);
+        } else if (value instanceof Set) {
+            return putStringSet(key, (Set<String>) value);
+        } else if (value instanceof byte[]) {
+            return putBytes(key, (byte[]) value);
+        } else if (value instanceof int[]) {
+            return putIntArray(key, (int[]) value);
+        } else if (value instanceof long[]) {
+            return putLongArray(key, (long[]) value);
+        } else if (value instanceof float[]) {
+            return putFloatArray(key, (float[]) value);
+        } else if (value instanceof double[]) {
+            return putDoubleArray(key, (double[]) value);
+        } else {
+            throw new IllegalArgumentException("Field is of type that has no support in shared preferences");
+        }
+    }
+
+    /**
+     * Adds String value with associated key to the batch.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved.
+     * @return This instance, so that calls can be chained.
+     */
+    public PreferenceEditor putString(String key, String value) {
+        long start = PreferenceTracer.start();
+        mEditor.putString(key, value);
+        mDecodedValueCache.invalidate(key);
+        if (start != PreferenceTracer.DISABLED) {
+            mBatchSize += PreferenceTracer.sizeOf(value);
+            PreferenceTracer.trace(mRepository, PreferenceMonitor.Operation.PUT, key, value, start);
+        }
+        return this;
+    }
+
+    /**
+     * Adds int value with associated key to the batch.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved.
+     * @return This instance, so that calls can be chained.
+     */
+    public PreferenceEditor putInt(String key, int value) {
+        long start = PreferenceTracer.start();
+        mEditor.putInt(key, value);
+        mDecodedValueCache.invalidate(key);
+        if (start != PreferenceTracer.DISABLED) {
+            mBatchSize += PreferenceTracer.sizeOf(value);
+            PreferenceTracer.trace(mRepository, PreferenceMonitor.Operation.PUT, key, value, start);
+        }
+        return this;
+    }
+
+    /**
+     * Adds long value with associated key to the batch.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved.
+     * @return This instance, so that calls can be chained.
+     */
+    public PreferenceEditor putLong(String key, long value) {
+        long start = PreferenceTracer.start();
+        mEditor.putLong(key, value);
+        mDecodedValueCache.invalidate(key);
+        if (start != PreferenceTracer.DISABLED) {
+            mBatchSize += PreferenceTracer.sizeOf(value);
+            PreferenceTracer.trace(mRepository, PreferenceMonitor.Operation.PUT, key, value, start);
+        }
+        return this;
+    }
+
+    /**
+     * Adds float value with associated key to the batch.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved.
+     * @return This instance, so that calls can be chained.
+     */
+    public PreferenceEditor putFloat(String key, float value) {
+        long start = PreferenceTracer.start();
+        mEditor.putFloat(key, value);
+        mDecodedValueCache.invalidate(key);
+        if (start != PreferenceTracer.DISABLED) {
+            mBatchSize += PreferenceTracer.sizeOf(value);
+            PreferenceTracer.trace(mRepository, PreferenceMonitor.Operation.PUT, key, value, start);
+        }
+        return this;
+    }
+
+    /**
+     * Adds boolean value with associated key to the batch.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved.
+     * @return This instance, so that calls can be chained.
+     */
+    public PreferenceEditor putBoolean(String key, boolean value) {
+        long start = PreferenceTracer.start();
+        mEditor.putBoolean(key, value);
+        mDecodedValueCache.invalidate(key);
+        if (start != PreferenceTracer.DISABLED) {
+            mBatchSize += PreferenceTracer.sizeOf(value);
+            PreferenceTracer.trace(mRepository, PreferenceMonitor.Operation.PUT, key, value, start);
+        }
+        return this;
+    }
+
+    /**
+     * Adds double value with associated key to the batch. It is stored as long value holding raw bits of the double
+     * (see {@link Double#doubleToRawLongBits(double)}), so it is read back without any loss.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved.
+     * @return This instance, so that calls can be chained.
+     */
+    public PreferenceEditor putDouble(String key, double value) {
+        return putLong(key, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * Adds string set value with associated key to the batch. Store keeps its own copy of the set, so it can be
+     * modified after this call.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved, or null to remove the key.
+     * @return This instance, so that calls can be chained.
+     */
+    public PreferenceEditor putStringSet(String key, Set<String> value) {
+        long start = PreferenceTracer.start();
+        mEditor.putStringSet(key, value);
+        mDecodedValueCache.invalidate(key);
+        if (start != PreferenceTracer.DISABLED) {
+            mBatchSize += PreferenceTracer.sizeOf(value);
+            PreferenceTracer.trace(mRepository, PreferenceMonitor.Operation.PUT, key, value, start);
+        }
+        return this;
+    }
+
+    /**
+     * Adds byte array value with associated key to the batch. It is stored as String value holding Base64 encoding
+     * of the bytes without padding.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved, or null to remove the key.
+     * @return This instance, so that calls can be chained.
+     */
+    public PreferenceEditor putBytes(String key, byte[] value) {
+        return putString(key, value != null ? Base64Codec.encode(value) : null);
+    }
+
+    /**
+     * Adds int array value with associated key to the batch. It is stored as String value holding Base64 encoding
+     * of packed array. Values are packed as varints of differences between subsequent values.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved, or null to remove the key.
+     * @return This instance, so that calls can be chained.
+     */
+    public PreferenceEditor putIntArray(String key, int[] value) {
+        return putString(key, value != null ? PackedArrayCodec.encodeInts(value) : null);
+    }
+
+    /**
+     * Adds long array value with associated key to the batch. It is stored as String value holding Base64 encoding
+     * of packed array. Values are packed as varints of differences between subsequent values.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved, or null to remove the key.
+     * @return This instance, so that calls can be chained.
+     */
+    public PreferenceEditor putLongArray(String key, long[] value) {
+        return putString(key, value != null ? PackedArrayCodec.encodeLongs(value) : null);
+    }
+
+    /**
+     * Adds float array value with associated key to the batch. It is stored as String value holding Base64 encoding
+     * of packed array. Values are packed as their raw bits.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved, or null to remove the key.
+     * @return This instance, so that calls can be chained.
+     */
+    public PreferenceEditor putFloatArray(String key, float[] value) {
+        return putString(key, value != null ? PackedArrayCodec.encodeFloats(value) : null);
+    }
+
+    /**
+     * Adds double array value with associated key to the batch. It is stored as String value holding Base64 encoding
+     * of packed array. Values are packed as their raw bits.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved, or null to remove the key.
+     * @return This instance, so that calls can be chained.
+     */
+    public PreferenceEditor putDoubleArray(String key, double[] value) {
+        return putString(key, value != null ? PackedArrayCodec.encodeDoubles(value) : null);
+    }
+
+    /**
+     * Adds removal of key/value pair associated with specified key to the batch.
+     * @param key Key to be removed.
+     * @return This instance, so that calls can be chained.
+     */
+    public PreferenceEditor remove(String key) {
+        long start = PreferenceTracer.start();
+        mEditor.remove(key);
+        mDecodedValueCache.invalidate(key);
+        if (start != PreferenceTracer.DISABLED) {
+            PreferenceTracer.trace(mRepository, PreferenceMonitor.Operation.REMOVE, key, null, start);
+        }
+        return this;
+    }
+
+    /**
+     * Adds removal of all key/value pairs to the batch. Clearing is done before other changes of the batch are applied.
+     * @return This instance, so that calls can be chained.
+     */
+    public PreferenceEditor clear() {
+        long start = PreferenceTracer.start();
+        mEditor.clear();
+        mDecodedValueCache.invalidateAll();
+        if (start != PreferenceTracer.DISABLED) {
+            PreferenceTracer.trace(mRepository, PreferenceMonitor.Operation.CLEAR, null, null, start);
+        }
+        return this;
+    }
+
+    /**
+     * Commits all changes of the batch to memory immediately and writes them to disk asynchronously.
+     */
+    public void apply() {
+        long start = PreferenceTracer.start();
+        mEditor.apply();
+        if (start != PreferenceTracer.DISABLED) {
+            PreferenceTracer.trace(mRepository, PreferenceMonitor.Operation.APPLY, null, null, mBatchSize, start);
+        }
+    }
+
+    /**
+     * Commits all changes of the batch and writes them to disk synchronously.
+     * @return true if changes were successfully written to disk, false otherwise.
+     */
+    public boolean commit() {
+        long start = PreferenceTracer.start();
+        boolean isCommitted = mEditor.commit();
+        if (start != PreferenceTracer.DISABLED) {
+            PreferenceTracer.trace(mRepository, PreferenceMonitor.Operation.COMMIT, null, null, mBatchSize, start);
+        }
+        return isCommitted;
+    }
+}
@@ -0,0 +1,41 @@
+package com.armdroid.smartpreferences;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Executors shared by the library.
+ */
+final class PreferenceExecutors {
+
+    /**
+     * Executor of disk operations, such as syncing, loading and compacting of stores. Its threads are daemons,
+     * so they never keep the process alive.
+     */
+    static final ExecutorService BACKGROUND = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "SmartPreferences-background");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Executor of delayed tasks, such as flushing of buffered writes. Tasks must be short, since they share
+     * a single daemon thread.
+     */
+    static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "SmartPreferences-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private PreferenceExecutors() {
+    }
+}
@@ -0,0 +1,184 @@
+package com.armdroid.smartpreferences;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Result of an asynchronous operation of the library, such as loading of preferences started by
+ * {@link SmartPreferences#initializeAsync(android.content.Context, Executor, String...)}. Result can be waited for with
+ * {@link #get()} or delivered to {@link PreferenceCallback}. Operations of the library cannot be cancelled.
+ * @param <T> Type of the result.
+ */
+public final class PreferenceFuture<T> implements Future<T> {
+
+    private final Object mLock = new Object();
+    private boolean mIsDone;
+    private T mResult;
+    private Throwable mError;
+    private List<Runnable> mPendingCallbacks = new ArrayList<>();
+
+    PreferenceFuture() {
+    }
+
+    static <T> PreferenceFuture<T> completed(T result) {
+        PreferenceFuture<T> future = new PreferenceFuture<>();
+        future.set(result);
+        return future;
+    }
+
+    void set(T result) {
+        complete(result, null);
+    }
+
+    void setException(Throwable error) {
+        complete(null, error);
+    }
+
+    private void complete(T result, Throwable error) {
+        List<Runnable> callbacks;
+        synchronized (mLock) {
+            if (mIsDone) {
+                return;
+            }
+            mResult = result;
+            mError = error;
+            mIsDone = true;
+            callbacks = mPendingCallbacks;
+            mPendingCallbacks = null;
+            mLock.notifyAll();
+        }
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+    }
+
+    /**
+     * Registers callback which is invoked on the thread that completes the operation, or immediately on the calling
+     * thread if operation is already completed.
+     * @param callback Callback that receives the result.
+     * @return This instance, so that calls can be chained.
+     */
+    public PreferenceFuture<T> addCallback(PreferenceCallback<? super T> callback) {
+        return addCallback(callback, null);
+    }
+
+    /**
+     * Registers callback which is invoked on given executor once the operation is completed. It is useful
+     * when callback must be invoked on the main thread.
+     * @param callback Callback that receives the result.
+     * @param executor Executor on which callback is invoked or null to invoke it on the thread that completes
+     *                 the operation.
+     * @return This instance, so that calls can be chained.
+     */
+    public PreferenceFuture<T> addCallback(final PreferenceCallback<? super T> callback, final Executor executor) {
+        final Runnable delivery = new Runnable() {
+            @Override
+            public void run() {
+                if (mError != null) {
+                    callback.onFailure(mError);
+                } else {
+                    callback.onReady(mResult);
+                }
+            }
+        };
+        Runnable task = executor == null ? delivery : new Runnable() {
+            @Override
+            public void run() {
+                executor.execute(delivery);
+            }
+        };
+        synchronized (mLock) {
+            if (!mIsDone) {
+                mPendingCallbacks.add(task);
+                return this;
+            }
+        }
+        task.run();
+        return this;
+    }
+
+    /**
+     * Operations of the library cannot be cancelled.
+     * @return false
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDone() {
+        synchronized (mLock) {
+            return mIsDone;
+        }
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        synchronized (mLock) {
+            while (!mIsDone) {
+                mLock.wait();
+            }
+            return getResult();
+        }
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (mLock) {
+            while (!mIsDone) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new TimeoutException();
+                }
+                TimeUnit.NANOSECONDS.timedWait(mLock, remaining);
+            }
+            return getResult();
+        }
+    }
+
+    /**
+     * Waits for the operation to complete, ignoring interruptions, as blocking calls of the library do.
+     * @throws IllegalStateException if the operation failed.
+     */
+    T await() {
+        boolean isInterrupted = false;
+        try {
+            synchronized (mLock) {
+                while (!mIsDone) {
+                    try {
+                        mLock.wait();
+                    } catch (InterruptedException e) {
+                        isInterrupted = true;
+                    }
+                }
+                if (mError != null) {
+                    throw new IllegalStateException("Preferences could not be loaded", mError);
+                }
+                return mResult;
+            }
+        } finally {
+            if (isInterrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private T getResult() throws ExecutionException {
+        if (mError != null) {
+            throw new ExecutionException(mError);
+        }
+        return mResult;
+    }
+}
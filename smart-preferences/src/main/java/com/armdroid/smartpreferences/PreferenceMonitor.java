@@ -0,0 +1,69 @@
+package com.armdroid.smartpreferences;
+
+/**
+ * Receives timing of operations done by {@link PreferenceRepository} and {@link PreferenceEditor}, so that hot keys
+ * and oversized values can be found. Monitor is set with {@link SmartPreferences#setPreferenceMonitor(PreferenceMonitor)}.
+ * No monitor is set by default, in which case operations are neither timed nor reported.
+ * <br><br>
+ * Monitor is called synchronously on the thread which did the operation, possibly on several threads at once,
+ * so implementations must be thread-safe and fast. See {@link AggregatingPreferenceMonitor}.
+ */
+public interface PreferenceMonitor {
+
+    enum Operation {
+        /**
+         * Value was read. Duration covers the read from {@link PreferenceStore}.
+         */
+        GET,
+        /**
+         * Values of several keys were read at once with {@link PreferenceRepository#snapshot(String...)}. Key is null
+         * and size is the total size of values that were read.
+         */
+        SNAPSHOT,
+        /**
+         * Value was added to a batch of changes.
+         */
+        PUT,
+        /**
+         * Removal of key was added to a batch of changes.
+         */
+        REMOVE,
+        /**
+         * Removal of all keys was added to a batch of changes. Key is null.
+         */
+        CLEAR,
+        /**
+         * Batch of changes was applied. Key is null and size is the total size of values in the batch.
+         */
+        APPLY,
+        /**
+         * Batch of changes was committed. Key is null and size is the total size of values in the batch.
+         */
+        COMMIT,
+        /**
+         * Change of key was dispatched to listeners. Duration covers all listeners, key is null if preferences were
+         * cleared and caller is always null.
+         */
+        CHANGE
+    }
+
+    /**
+     * Called after each operation.
+     * @param repository Repository of preferences file on which operation was done.
+     * @param operation Type of operation.
+     * @param key Key of preference, or null if operation is not related to a single key.
+     * @param valueType Type of value that was read or written, or null if there is no value.
+     * @param size Size of value in bytes, as it is encoded by {@link LogPreferenceStore} and {@link BinaryPreferenceStore}
+     *             (UTF-8 bytes for String values).
+     * @param durationNanos Duration of operation in nanoseconds.
+     * @param caller Name of the first class outside of the library that called it. For operations done by generated
+     *               classes, this is the generated class of the target class.
+     */
+    void onOperation(PreferenceRepository repository,
+                     Operation operation,
+                     String key,
+                     Class<?> valueType,
+                     int size,
+                     long durationNanos,
+                     String caller);
+}
@@ -0,0 +1,264 @@
+package com.armdroid.smartpreferences;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Binary format of preferences kept on disk. Changes are written in frames, each frame is a batch of typed records
+ * which is applied as a whole:
+ * <pre>
+ * frame:  [int length][int crc32 of records][records]
+ * record: [byte type][int key length][UTF-8 key][value]
+ * </pre>
+ * Value of {@link #TYPE_STRING_SET} is the number of strings followed by strings encoded the same way as keys.
+ * Value is absent for {@link #TYPE_REMOVE} and {@link #TYPE_CLEAR}, which has no key either. Frame which is cut off
+ * or has wrong checksum ends the data, so a frame torn by crash is dropped as a whole.
+ */
+final class PreferenceRecordCodec {
+
+    static final byte TYPE_STRING = 1;
+    static final byte TYPE_INT = 2;
+    static final byte TYPE_LONG = 3;
+    static final byte TYPE_FLOAT = 4;
+    static final byte TYPE_BOOLEAN = 5;
+    static final byte TYPE_REMOVE = 6;
+    static final byte TYPE_CLEAR = 7;
+    static final byte TYPE_STRING_SET = 8;
+
+    static final int FRAME_HEADER_SIZE = 8;
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private PreferenceRecordCodec() {
+    }
+
+    /**
+     * Encodes a batch of changes into a single frame.
+     * @param clear true if frame should remove all key/value pairs before other changes.
+     * @param changes Changed keys mapped to new values. Removed keys are mapped to null.
+     * @return Encoded frame.
+     */
+    static byte[] encodeFrame(boolean clear, Map<String, ?> changes) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(FRAME_HEADER_SIZE + changes.size() * 32);
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeInt(0);
+            out.writeInt(0);
+            if (clear) {
+                out.writeByte(TYPE_CLEAR);
+            }
+            for (Map.Entry<String, ?> change : changes.entrySet()) {
+                writeRecord(out, change.getKey(), change.getValue());
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+        byte[] frame = bytes.toByteArray();
+        int length = frame.length - FRAME_HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        crc.update(frame, FRAME_HEADER_SIZE, length);
+        ByteBuffer.wrap(frame).putInt(length).putInt((int) crc.getValue());
+        return frame;
+    }
+
+    /**
+     * Decodes frames from current position of buffer and applies them to values, stopping at the end of buffer
+     * or at the first frame which is cut off or corrupted.
+     * @param buffer Buffer with encoded frames.
+     * @param values Map to which decoded changes are applied.
+     * @return Position of buffer right after the last valid frame.
+     */
+    static int decodeFrames(ByteBuffer buffer, Map<String, Object> values) {
+        int validPosition = buffer.position();
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= FRAME_HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                break;
+            }
+            ByteBuffer records;
+            crc.reset();
+            if (buffer.hasArray()) {
+                // heap buffer is decoded in place, without copying
+                crc.update(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+                records = buffer.slice();
+                records.limit(length);
+                buffer.position(buffer.position() + length);
+            } else {
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                crc.update(bytes, 0, length);
+                records = ByteBuffer.wrap(bytes);
+            }
+            if ((int) crc.getValue() != checksum || !decodeRecords(records, values)) {
+                break;
+            }
+            validPosition = buffer.position();
+        }
+        return validPosition;
+    }
+
+    /**
+     * Reads the whole file with a single bulk read and decodes its frames in place.
+     * @param file File with encoded frames. Missing file is treated as empty.
+     * @param values Map to which decoded changes are applied.
+     * @return Size of the valid part of file.
+     * @throws IOException if file cannot be read.
+     */
+    static long decodeFile(File file, Map<String, Object> values) throws IOException {
+        if (!file.exists()) {
+            return 0;
+        }
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) randomAccessFile.length()];
+            randomAccessFile.readFully(bytes);
+            return decodeFrames(ByteBuffer.wrap(bytes), values);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Writes values as a single frame to a temporary file first and syncs it, so that the file is replaced atomically.
+     * @param file File to be replaced.
+     * @param values Values to be written.
+     * @throws IOException if file cannot be written.
+     */
+    static void encodeFile(File file, Map<String, ?> values) throws IOException {
+        File tempFile = new File(file.getPath() + TEMP_SUFFIX);
+        FileOutputStream out = new FileOutputStream(tempFile);
+        try {
+            out.write(encodeFrame(false, values));
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!tempFile.renameTo(file)) {
+            deleteFile(tempFile);
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    static void deleteFile(File file) throws IOException {
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Cannot delete " + file);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, String key, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_REMOVE);
+            writeString(out, key);
+        } else if (value instanceof String) {
+            out.writeByte(TYPE_STRING);
+            writeString(out, key);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(TYPE_INT);
+            writeString(out, key);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            writeString(out, key);
+            out.writeLong((Long) value);
+        } else if (value instanceof Float) {
+            out.writeByte(TYPE_FLOAT);
+            writeString(out, key);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(TYPE_BOOLEAN);
+            writeString(out, key);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Set) {
+            out.writeByte(TYPE_STRING_SET);
+            writeString(out, key);
+            Set<?> values = (Set<?>) value;
+            out.writeInt(values.size());
+            for (Object string : values) {
+                writeString(out, (String) string);
+            }
+        } else {
+            throw new IllegalArgumentException("Field is of type that has no support in shared preferences");
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static boolean decodeRecords(ByteBuffer records, Map<String, Object> values) {
+        while (records.hasRemaining()) {
+            byte type = records.get();
+            if (type == TYPE_CLEAR) {
+                values.clear();
+                continue;
+            }
+            String key = readString(records);
+            switch (type) {
+                case TYPE_REMOVE:
+                    values.remove(key);
+                    break;
+                case TYPE_STRING:
+                    values.put(key, readString(records));
+                    break;
+                case TYPE_INT:
+                    values.put(key, records.getInt());
+                    break;
+                case TYPE_LONG:
+                    values.put(key, records.getLong());
+                    break;
+                case TYPE_FLOAT:
+                    values.put(key, records.getFloat());
+                    break;
+                case TYPE_BOOLEAN:
+                    values.put(key, records.get() != 0);
+                    break;
+                case TYPE_STRING_SET:
+                    values.put(key, readStringSet(records));
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<String> readStringSet(ByteBuffer records) {
+        int size = records.getInt();
+        Set<String> values = new HashSet<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(records));
+        }
+        // stores keep sets unmodifiable, see InMemoryPreferenceStore
+        return Collections.unmodifiableSet(values);
+    }
+
+    private static String readString(ByteBuffer records) {
+        int length = records.getInt();
+        if (records.hasArray()) {
+            int offset = records.arrayOffset() + records.position();
+            records.position(records.position() + length);
+            return new String(records.array(), offset, length, UTF_8);
+        }
+        byte[] bytes = new byte[length];
+        records.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
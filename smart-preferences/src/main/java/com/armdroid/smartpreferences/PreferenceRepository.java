@@ -2,11 +2,36 @@ package com.armdroid.smartpreferences;
 
 import android.content.SharedPreferences;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class PreferenceRepository {
 
-    private SharedPreferences mPreferences;
+    private volatile String mFileName;
+    private volatile PreferenceStore mStore;
+    private volatile PreferenceFuture<?> mPendingLoad;
+    private final DecodedValueCache mDecodedValueCache = new DecodedValueCache();
+    private final Map<String, CopyOnWriteArrayList<PreferenceChangeListener>> mChangeListeners = new ConcurrentHashMap<>();
+    private boolean mIsDispatcherRegistered;
+    private volatile FlushPolicy mFlushPolicy = FlushPolicy.IMMEDIATE;
+    // null if writes are not buffered
+    private volatile WriteBuffer mWriteBuffer;
+
+    /**
+     * The only listener registered in {@link PreferenceStore} by the library.
+     */
+    private final PreferenceStore.OnChangeListener mChangeDispatcher = new PreferenceStore.OnChangeListener() {
+        @Override
+        public void onChanged(PreferenceStore store, String key) {
+            dispatchChange(key);
+        }
+    };
+
+    private static final Map<String, PreferenceRepository> sFileRepositories = new ConcurrentHashMap<>();
 
     private static class Holder {
         private static PreferenceRepository INSTANCE = new PreferenceRepository();
@@ -14,24 +39,141 @@ public class PreferenceRepository {
 
     /**
      * Returns singleton instance of PreferenceRepository which can be used to handle all kind of
-     * operations with {@link SharedPreferences}.
+     * operations with preferences.
      * @return Singleton instance of {@link PreferenceRepository}
      */
     public static PreferenceRepository getInstance() {
         return Holder.INSTANCE;
     }
 
+    /**
+     * Returns instance of PreferenceRepository which handles operations with preferences kept in the
+     * preferences file with given name. Instance is created on the first call and the same instance is returned for
+     * all subsequent calls with the same file name.
+     * @param fileName Name of preferences file.
+     * @return Instance of {@link PreferenceRepository} bound to the preferences file.
+     * @throws IllegalStateException if {@link SmartPreferences#initialize(android.content.Context)} has not been called.
+     */
+    public static PreferenceRepository getInstance(String fileName) {
+        PreferenceRepository repository = sFileRepositories.get(fileName);
+        if (repository != null) {
+            return repository;
+        }
+        synchronized (sFileRepositories) {
+            repository = sFileRepositories.get(fileName);
+            if (repository == null) {
+                repository = new PreferenceRepository();
+                repository.mFileName = fileName;
+                repository.setPreferenceStore(SmartPreferences.openPreferenceStore(fileName));
+                repository.setFlushPolicy(SmartPreferences.getFlushPolicy());
+                sFileRepositories.put(fileName, repository);
+            }
+            return repository;
+        }
+    }
+
+    /**
+     * Makes {@link #getInstance(String)} return the singleton instance for the default preferences file,
+     * so that both of them share the same listeners and cache.
+     */
+    static void registerDefaultFile(String fileName) {
+        Holder.INSTANCE.mFileName = fileName;
+        sFileRepositories.put(fileName, Holder.INSTANCE);
+    }
+
+    /**
+     * @return All repositories created so far, including the singleton instance.
+     */
+    static Collection<PreferenceRepository> getInstances() {
+        Set<PreferenceRepository> repositories = new HashSet<>(sFileRepositories.values());
+        repositories.add(Holder.INSTANCE);
+        return repositories;
+    }
+
+    /**
+     * Calls {@link #flush()} of every repository.
+     */
+    public static void flushAll() {
+        for (PreferenceRepository repository : getInstances()) {
+            repository.flush();
+        }
+    }
+
+    /**
+     * @return Name of preferences file of this repository, or null if the singleton instance is used before
+     * {@link SmartPreferences#initialize(android.content.Context)} is called.
+     */
+    public String getFileName() {
+        return mFileName;
+    }
+
     /**
      * Normally, this method should not be called by user, however, it can be used for handling operations
      * with other instances of {@link SharedPreferences} other than the one provided by SmartPreferences library.
+     * It is the same as calling {@link #setPreferenceStore(PreferenceStore)} with {@link SharedPreferencesStore}.
      */
     public void setPreferences(SharedPreferences preferences) {
-        mPreferences = preferences;
+        setPreferenceStore(new SharedPreferencesStore(preferences));
     }
 
     /**
-     * Returns value of associated key from {@link SharedPreferences}. Return type is specified by the type of defaultValue.
-     * defaultValue can be one of the following: String, int, long, float, boolean and their boxed types.
+     * Replaces storage backend of this repository. Listeners registered with
+     * {@link #registerPreferenceChangeListener(PreferenceChangeListener, String...)} are moved to the new store.
+     * @param store Store that will keep preferences from now on.
+     */
+    public void setPreferenceStore(PreferenceStore store) {
+        synchronized (mChangeListeners) {
+            if (mIsDispatcherRegistered) {
+                mStore.unregisterOnChangeListener(mChangeDispatcher);
+            }
+            mStore = store;
+            mIsDispatcherRegistered = false;
+            if (!mChangeListeners.isEmpty()) {
+                registerChangeDispatcher();
+            }
+        }
+        mDecodedValueCache.invalidateAll();
+    }
+
+    /**
+     * Returns storage backend of this repository. If store is being loaded asynchronously (see
+     * {@link SmartPreferences#initializeAsync(android.content.Context, java.util.concurrent.Executor, String...)}), this method
+     * blocks until it is loaded, so do all other methods reading or writing preferences.
+     * @return Storage backend of this repository.
+     */
+    public PreferenceStore getPreferenceStore() {
+        PreferenceStore store = mStore;
+        if (store == null) {
+            PreferenceFuture<?> pendingLoad = mPendingLoad;
+            if (pendingLoad != null) {
+                pendingLoad.await();
+            }
+            store = mStore;
+        }
+        return store;
+    }
+
+    /**
+     * Makes methods of this repository wait for the load, which sets the store once it is completed.
+     */
+    void setPendingLoad(PreferenceFuture<?> pendingLoad) {
+        mPendingLoad = pendingLoad;
+    }
+
+    /**
+     * Returns cache of values decoded by transformers of fields that have {@link Transform#cacheDecoded()} set.
+     * Normally, it is used only by generated classes, but its maximum size can be changed with
+     * {@link DecodedValueCache#setMaxSize(int)}.
+     * @return Cache of decoded values associated with this repository.
+     */
+    public DecodedValueCache getDecodedValueCache() {
+        return mDecodedValueCache;
+    }
+
+    /**
+     * Returns value of associated key from {@link PreferenceStore}. Return type is specified by the type of defaultValue.
+     * defaultValue can be one of the following: String, int, long, float, boolean, double and their boxed types,
+     * Set&lt;String&gt;, byte[], int[], long[], float[] and double[].
      * {@link IllegalArgumentException} is thrown in case the type of defaultValue is not in the list above.
      * @param key Identifier of object in preferences.
      * @param defaultValue Default value in case preference not found.
@@ -42,15 +184,29 @@ public class PreferenceRepository {
     public <T> T get(String key, T defaultValue) {
         Object value;
         if (defaultValue instanceof String) {
-            value = mPreferences.getString(key, (String) defaultValue);
+            value = getString(key, (String) defaultValue);
         } else if (defaultValue instanceof Integer) {
-            value = mPreferences.getInt(key, (Integer) defaultValue);
+            value = getInt(key, (Integer) defaultValue);
         } else if (defaultValue instanceof Long) {
-            value = mPreferences.getLong(key, (Long) defaultValue);
+            value = getLong(key, (Long) defaultValue);
         } else if (defaultValue instanceof Float) {
-            value = mPreferences.getFloat(key, (Float) defaultValue);
+            value = getFloat(key, (Float) defaultValue);
         } else if (defaultValue instanceof Boolean) {
-            value = mPreferences.getBoolean(key, (Boolean) defaultValue);
+            value = getBoolean(key, (Boolean) defaultValue);
+        } else if (defaultValue instanceof Double) {
+            value = getDouble(key, (Double) defaultValue);
+        } else if (defaultValue instanceof Set) {
+            value = getStringSet(key, (Set<String>) defaultValue);
+        } else if (defaultValue instanceof byte[]) {
+            value = getBytes(key, (byte[]) defaultValue);
+        } else if (defaultValue instanceof int[]) {
+            value = getIntArray(key, (int[]) defaultValue);
+        } else if (defaultValue instanceof long[]) {
+            value = getLongArray(key, (long[]) defaultValue);
+        } else if (defaultValue instanceof float[]) {
+            value = getFloatArray(key, (float[]) defaultValue);
+        } else if (defaultValue instanceof double[]) {
+            value = getDoubleArray(key, (double[]) defaultValue);
         } else {
             throw new IllegalArgumentException("Field is of type that has no support in shared preferences");
         }
@@ -58,80 +214,532 @@ public class PreferenceRepository {
     }
 
     /**
-     * Returns a map of key, value pairs from {@link SharedPreferences}.
+     * Returns String value of associated key from {@link PreferenceStore}.
+     * @param key Identifier of object in preferences.
+     * @param defaultValue Default value in case preference not found.
+     * @return Value associated with key.
+     */
+    public String getString(String key, String defaultValue) {
+        long start = PreferenceTracer.start();
+        Object pending = getPendingValue(key);
+        String value = pending == WriteBuffer.MISSING ? getPreferenceStore().getString(key, defaultValue)
+                : pending != null ? (String) pending : defaultValue;
+        if (start != PreferenceTracer.DISABLED) {
+            PreferenceTracer.trace(this, PreferenceMonitor.Operation.GET, key, value, start);
+        }
+        return value;
+    }
+
+    /**
+     * Returns int value of associated key from {@link PreferenceStore}. Unlike {@link #get(String, Object)},
+     * value is neither boxed nor unboxed.
+     * @param key Identifier of object in preferences.
+     * @param defaultValue Default value in case preference not found.
+     * @return Value associated with key.
+     */
+    public int getInt(String key, int defaultValue) {
+        long start = PreferenceTracer.start();
+        Object pending = getPendingValue(key);
+        int value = pending == WriteBuffer.MISSING ? getPreferenceStore().getInt(key, defaultValue)
+                : pending != null ? (Integer) pending : defaultValue;
+        if (start != PreferenceTracer.DISABLED) {
+            PreferenceTracer.trace(this, PreferenceMonitor.Operation.GET, key, value, start);
+        }
+        return value;
+    }
+
+    /**
+     * Returns long value of associated key from {@link PreferenceStore}. Unlike {@link #get(String, Object)},
+     * value is neither boxed nor unboxed.
+     * @param key Identifier of object in preferences.
+     * @param defaultValue Default value in case preference not found.
+     * @return Value associated with key.
+     */
+    public long getLong(String key, long defaultValue) {
+        long start = PreferenceTracer.start();
+        Object pending = getPendingValue(key);
+        long value = pending == WriteBuffer.MISSING ? getPreferenceStore().getLong(key, defaultValue)
+                : pending != null ? (Long) pending : defaultValue;
+        if (start != PreferenceTracer.DISABLED) {
+            PreferenceTracer.trace(this, PreferenceMonitor.Operation.GET, key, value, start);
+        }
+        return value;
+    }
+
+    /**
+     * Returns float value of associated key from {@link PreferenceStore}. Unlike {@link #get(String, Object)},
+     * value is neither boxed nor unboxed.
+     * @param key Identifier of object in preferences.
+     * @param defaultValue Default value in case preference not found.
+     * @return Value associated with key.
+     */
+    public float getFloat(String key, float defaultValue) {
+        long start = PreferenceTracer.start();
+        Object pending = getPendingValue(key);
+        float value = pending == WriteBuffer.MISSING ? getPreferenceStore().getFloat(key, defaultValue)
+                : pending != null ? (Float) pending : defaultValue;
+        if (start != PreferenceTracer.DISABLED) {
+            PreferenceTracer.trace(this, PreferenceMonitor.Operation.GET, key, value, start);
+        }
+        return value;
+    }
+
+    /**
+     * Returns boolean value of associated key from {@link PreferenceStore}. Unlike {@link #get(String, Object)},
+     * value is neither boxed nor unboxed.
+     * @param key Identifier of object in preferences.
+     * @param defaultValue Default value in case preference not found.
+     * @return Value associated with key.
+     */
+    public boolean getBoolean(String key, boolean defaultValue) {
+        long start = PreferenceTracer.start();
+        Object pending = getPendingValue(key);
+        boolean value = pending == WriteBuffer.MISSING ? getPreferenceStore().getBoolean(key, defaultValue)
+                : pending != null ? (Boolean) pending : defaultValue;
+        if (start != PreferenceTracer.DISABLED) {
+            PreferenceTracer.trace(this, PreferenceMonitor.Operation.GET, key, value, start);
+        }
+        return value;
+    }
+
+    /**
+     * Returns double value of associated key from {@link PreferenceStore}. Double is stored as long value holding
+     * its raw bits (see {@link Double#doubleToRawLongBits(double)}), so it is read back without any loss.
+     * @param key Identifier of object in preferences.
+     * @param defaultValue Default value in case preference not found.
+     * @return Value associated with key.
+     */
+    public double getDouble(String key, double defaultValue) {
+        return Double.longBitsToDouble(getLong(key, Double.doubleToRawLongBits(defaultValue)));
+    }
+
+    /**
+     * Returns string set value of associated key from {@link PreferenceStore}. Unlike
+     * {@link SharedPreferences#getStringSet(String, Set)}, returned set is a copy which can be modified.
+     * @param key Identifier of object in preferences.
+     * @param defaultValue Default value in case preference not found.
+     * @return Value associated with key.
+     */
+    @SuppressWarnings("unchecked")
+    public Set<String> getStringSet(String key, Set<String> defaultValue) {
+        long start = PreferenceTracer.start();
+        Object pending = getPendingValue(key);
+        Set<String> value = pending == WriteBuffer.MISSING ? getPreferenceStore().getStringSet(key, null)
+                : (Set<String>) pending;
+        value = value != null ? new HashSet<>(value) : defaultValue;
+        if (start != PreferenceTracer.DISABLED) {
+            PreferenceTracer.trace(this, PreferenceMonitor.Operation.GET, key, value, start);
+        }
+        return value;
+    }
+
+    /**
+     * Returns byte array value of associated key from {@link PreferenceStore}. Byte array is stored as String value
+     * holding its Base64 encoding, see {@link #putBytes(String, byte[])}.
+     * @param key Identifier of object in preferences.
+     * @param defaultValue Default value in case preference not found.
+     * @return Value associated with key.
+     * @throws IllegalArgumentException if value associated with key is a String which is not Base64 encoded.
+     */
+    public byte[] getBytes(String key, byte[] defaultValue) {
+        String value = getString(key, null);
+        return value != null ? Base64Codec.decode(value) : defaultValue;
+    }
+
+    /**
+     * Returns int array value of associated key from {@link PreferenceStore}. Array is stored as String value holding
+     * its packed encoding, see {@link #putIntArray(String, int[])}.
+     * @param key Identifier of object in preferences.
+     * @param defaultValue Default value in case preference not found.
+     * @return Value associated with key.
+     * @throws IllegalArgumentException if value associated with key is a String which is not an encoded int array.
+     */
+    public int[] getIntArray(String key, int[] defaultValue) {
+        String value = getString(key, null);
+        return value != null ? PackedArrayCodec.decodeInts(value) : defaultValue;
+    }
+
+    /**
+     * Returns long array value of associated key from {@link PreferenceStore}. Array is stored as String value holding
+     * its packed encoding, see {@link #putLongArray(String, long[])}.
+     * @param key Identifier of object in preferences.
+     * @param defaultValue Default value in case preference not found.
+     * @return Value associated with key.
+     * @throws IllegalArgumentException if value associated with key is a String which is not an encoded long array.
+     */
+    public long[] getLongArray(String key, long[] defaultValue) {
+        String value = getString(key, null);
+        return value != null ? PackedArrayCodec.decodeLongs(value) : defaultValue;
+    }
+
+    /**
+     * Returns float array value of associated key from {@link PreferenceStore}. Array is stored as String value holding
+     * its packed encoding, see {@link #putFloatArray(String, float[])}.
+     * @param key Identifier of object in preferences.
+     * @param defaultValue Default value in case preference not found.
+     * @return Value associated with key.
+     * @throws IllegalArgumentException if value associated with key is a String which is not an encoded float array.
+     */
+    public float[] getFloatArray(String key, float[] defaultValue) {
+        String value = getString(key, null);
+        return value != null ? PackedArrayCodec.decodeFloats(value) : defaultValue;
+    }
+
+    /**
+     * Returns double array value of associated key from {@link PreferenceStore}. Array is stored as String value holding
+     * its packed encoding, see {@link #putDoubleArray(String, double[])}.
+     * @param key Identifier of object in preferences.
+     * @param defaultValue Default value in case preference not found.
+     * @return Value associated with key.
+     * @throws IllegalArgumentException if value associated with key is a String which is not an encoded double array.
+     */
+    public double[] getDoubleArray(String key, double[] defaultValue) {
+        String value = getString(key, null);
+        return value != null ? PackedArrayCodec.decodeDoubles(value) : defaultValue;
+    }
+
+    /**
+     * Returns a map of key, value pairs from {@link PreferenceStore}.
      * @return Map of pairs.
      */
     public Map<String, ?> getAll() {
-        return mPreferences.getAll();
+        WriteBuffer buffer = mWriteBuffer;
+        Map<String, ?> values = getPreferenceStore().getAll();
+        return buffer != null ? buffer.overlay(values) : values;
+    }
+
+    /**
+     * Reads values of given keys at once, as they were at a single moment (see {@link PreferenceStore#getValues(String...)}).
+     * Unlike reading keys one by one, values changed together by a concurrent batch are never mixed with their old
+     * values. Generated classes read all fields with it.
+     * @param keys Keys of preferences to be read.
+     * @return Snapshot of values.
+     */
+    public PreferenceSnapshot snapshot(String... keys) {
+        long start = PreferenceTracer.start();
+        WriteBuffer buffer = mWriteBuffer;
+        Map<String, ?> values = getPreferenceStore().getValues(keys);
+        PreferenceSnapshot snapshot = new PreferenceSnapshot(buffer != null ? buffer.overlay(values) : values);
+        if (start != PreferenceTracer.DISABLED) {
+            PreferenceTracer.trace(this, PreferenceMonitor.Operation.SNAPSHOT, null, null, snapshot.sizeOf(keys), start);
+        }
+        return snapshot;
     }
 
     /**
-     * Saves value with associated key in {@link SharedPreferences}.
-     * Value can be one of the following: String, int, long, float, boolean and their boxed types.
+     * Saves value with associated key in {@link PreferenceStore}.
+     * Value can be one of the following: String, int, long, float, boolean, double and their boxed types,
+     * Set&lt;String&gt;, byte[], int[], long[], float[] and double[].
      * {@link IllegalArgumentException} is thrown in case the type of value is not in the list above.
+     * Use {@link #edit()} when several values are saved at once.
      * @param key Identifier of object in preferences.
      * @param value Value that is going to be saved.
      */
     public void put(String key, Object value) {
-        SharedPreferences.Editor editor = mPreferences.edit();
-        if (value instanceof String) {
-            editor.putString(key, (String) value);
-        } else if (value instanceof Integer) {
-            editor.putInt(key, (Integer) value);
-        } else if (value instanceof Long) {
-            editor.putLong(key, (Long) value);
-        } else if (value instanceof Float) {
-            editor.putFloat(key, (Float) value);
-        } else if (value instanceof Boolean) {
-            editor.putBoolean(key, (Boolean) value);
-        } else {
-            throw new IllegalArgumentException("Field is of type that has no support in shared preferences");
+        edit().put(key, value).apply();
+    }
+
+    /**
+     * Saves String value with associated key in {@link PreferenceStore}.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved.
+     */
+    public void putString(String key, String value) {
+        edit().putString(key, value).apply();
+    }
+
+    /**
+     * Saves int value with associated key in {@link PreferenceStore}. Unlike {@link #put(String, Object)},
+     * value is not boxed.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved.
+     */
+    public void putInt(String key, int value) {
+        edit().putInt(key, value).apply();
+    }
+
+    /**
+     * Saves long value with associated key in {@link PreferenceStore}. Unlike {@link #put(String, Object)},
+     * value is not boxed.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved.
+     */
+    public void putLong(String key, long value) {
+        edit().putLong(key, value).apply();
+    }
+
+    /**
+     * Saves float value with associated key in {@link PreferenceStore}. Unlike {@link #put(String, Object)},
+     * value is not boxed.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved.
+     */
+    public void putFloat(String key, float value) {
+        edit().putFloat(key, value).apply();
+    }
+
+    /**
+     * Saves boolean value with associated key in {@link PreferenceStore}. Unlike {@link #put(String, Object)},
+     * value is not boxed.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved.
+     */
+    public void putBoolean(String key, boolean value) {
+        edit().putBoolean(key, value).apply();
+    }
+
+    /**
+     * Saves double value with associated key in {@link PreferenceStore} as long value holding its raw bits.
+     * Unlike {@link #put(String, Object)}, value is not boxed.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved.
+     */
+    public void putDouble(String key, double value) {
+        edit().putDouble(key, value).apply();
+    }
+
+    /**
+     * Saves string set value with associated key in {@link PreferenceStore}. Store keeps its own copy of the set.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved, or null to remove the key.
+     */
+    public void putStringSet(String key, Set<String> value) {
+        edit().putStringSet(key, value).apply();
+    }
+
+    /**
+     * Saves byte array value with associated key in {@link PreferenceStore} as String value holding its Base64
+     * encoding without padding.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved, or null to remove the key.
+     */
+    public void putBytes(String key, byte[] value) {
+        edit().putBytes(key, value).apply();
+    }
+
+    /**
+     * Saves int array value with associated key in {@link PreferenceStore} as String value holding Base64 encoding
+     * of packed array. Values are packed as varints of differences between subsequent values.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved, or null to remove the key.
+     */
+    public void putIntArray(String key, int[] value) {
+        edit().putIntArray(key, value).apply();
+    }
+
+    /**
+     * Saves long array value with associated key in {@link PreferenceStore} as String value holding Base64 encoding
+     * of packed array. Values are packed as varints of differences between subsequent values.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved, or null to remove the key.
+     */
+    public void putLongArray(String key, long[] value) {
+        edit().putLongArray(key, value).apply();
+    }
+
+    /**
+     * Saves float array value with associated key in {@link PreferenceStore} as String value holding Base64 encoding
+     * of packed array. Values are packed as their raw bits.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved, or null to remove the key.
+     */
+    public void putFloatArray(String key, float[] value) {
+        edit().putFloatArray(key, value).apply();
+    }
+
+    /**
+     * Saves double array value with associated key in {@link PreferenceStore} as String value holding Base64 encoding
+     * of packed array. Values are packed as their raw bits.
+     * @param key Identifier of object in preferences.
+     * @param value Value that is going to be saved, or null to remove the key.
+     */
+    public void putDoubleArray(String key, double[] value) {
+        edit().putDoubleArray(key, value).apply();
+    }
+
+    /**
+     * Starts a batch of changes to {@link PreferenceStore}. Changes added to returned instance are written
+     * together in one transaction once {@link PreferenceEditor#apply()} or {@link PreferenceEditor#commit()} is called.
+     * @return New instance of {@link PreferenceEditor}.
+     */
+    public PreferenceEditor edit() {
+        WriteBuffer buffer = mWriteBuffer;
+        PreferenceStore.Editor editor = buffer != null ? buffer.edit() : getPreferenceStore().edit();
+        return new PreferenceEditor(this, editor, mDecodedValueCache);
+    }
+
+    /**
+     * Sets policy which decides when writes are written to {@link PreferenceStore}, see {@link FlushPolicy}.
+     * Writes buffered according to the previous policy are flushed.
+     * @param policy New policy, {@link FlushPolicy#IMMEDIATE} by default or the one set with
+     *               {@link SmartPreferences#setFlushPolicy(FlushPolicy)}.
+     */
+    public void setFlushPolicy(FlushPolicy policy) {
+        WriteBuffer previousBuffer;
+        synchronized (this) {
+            previousBuffer = mWriteBuffer;
+            mFlushPolicy = policy;
+            mWriteBuffer = policy.isImmediate() ? null : new WriteBuffer(this, policy);
+        }
+        if (previousBuffer != null) {
+            previousBuffer.close();
+        }
+    }
+
+    public FlushPolicy getFlushPolicy() {
+        return mFlushPolicy;
+    }
+
+    /**
+     * Writes all buffered writes to {@link PreferenceStore} as a single batch, which is applied to memory immediately
+     * and persisted asynchronously. It does nothing if {@link FlushPolicy} is immediate.
+     */
+    public void flush() {
+        WriteBuffer buffer = mWriteBuffer;
+        if (buffer != null) {
+            buffer.flush();
         }
-        editor.apply();
     }
 
     /**
-     * Checks whether {@link SharedPreferences} contains key/value pair associated with specified key.
+     * @return Counters of writes buffered according to the current {@link FlushPolicy}. All of them are 0 if
+     * policy is immediate.
+     */
+    public WriteStats getWriteStats() {
+        WriteBuffer buffer = mWriteBuffer;
+        return buffer != null ? buffer.getStats() : new WriteStats(0, 0, 0, 0);
+    }
+
+    /**
+     * Checks whether {@link PreferenceStore} contains key/value pair associated with specified key.
      * @param key Key to be searched.
      * @return true if key/value pair exists, false otherwise.
      */
     public boolean contains(String key) {
-        return mPreferences.contains(key);
+        Object pending = getPendingValue(key);
+        return pending == WriteBuffer.MISSING ? getPreferenceStore().contains(key) : pending != null;
+    }
+
+    private Object getPendingValue(String key) {
+        WriteBuffer buffer = mWriteBuffer;
+        return buffer != null ? buffer.get(key) : WriteBuffer.MISSING;
     }
 
     /**
-     * Tries to remove key/balue pair from {@link SharedPreferences}.
+     * Tries to remove key/balue pair from {@link PreferenceStore}.
      * @param key Key to be searched.
      * @return true if key/value pair was removed, false if pair did not exist.
      */
     public boolean remove(String key) {
         if (contains(key)) {
-            mPreferences.edit().remove(key).apply();
+            edit().remove(key).apply();
             return true;
         }
         return false;
     }
 
     /**
-     * Clears all key/value pairs from {@link SharedPreferences}.
+     * Clears all key/value pairs from {@link PreferenceStore}.
      */
     public void clearPreferences() {
-        mPreferences.edit().clear().apply();
+        edit().clear().apply();
     }
 
     /**
      * Registers a listener that listens to changes in {@link SharedPreferences}.
+     * {@link UnsupportedOperationException} is thrown in case repository is not backed by {@link SharedPreferencesStore}.
      * @param listener New instance of {@link SharedPreferences.OnSharedPreferenceChangeListener} that will listen to changes.
      */
     public void registerOnSharedPreferenceChangeListener(SharedPreferences.OnSharedPreferenceChangeListener listener) {
-        mPreferences.registerOnSharedPreferenceChangeListener(listener);
+        getSharedPreferences().registerOnSharedPreferenceChangeListener(listener);
     }
 
     /**
      * Unregisters existing listener that was listening to changes in {@link SharedPreferences}.
+     * {@link UnsupportedOperationException} is thrown in case repository is not backed by {@link SharedPreferencesStore}.
      * @param listener Instance of {@link SharedPreferences.OnSharedPreferenceChangeListener} that was listening to changes.
      */
     public void unregisterOnSharedPreferenceChangeListener(SharedPreferences.OnSharedPreferenceChangeListener listener) {
-        mPreferences.unregisterOnSharedPreferenceChangeListener(listener);
+        getSharedPreferences().unregisterOnSharedPreferenceChangeListener(listener);
+    }
+
+    private SharedPreferences getSharedPreferences() {
+        PreferenceStore store = getPreferenceStore();
+        if (!(store instanceof SharedPreferencesStore)) {
+            throw new UnsupportedOperationException("Repository is not backed by SharedPreferences, use registerPreferenceChangeListener instead");
+        }
+        return ((SharedPreferencesStore) store).getSharedPreferences();
+    }
+
+    /**
+     * Registers a listener that is notified only about changes of specified keys. All listeners share a single
+     * {@link PreferenceStore.OnChangeListener} and changes are dispatched by key, so a change
+     * invokes only listeners that were registered for changed key. Registering the same listener for the same
+     * key more than once has no effect.
+     * @param listener Listener that will be notified about changes.
+     * @param keys Keys of preferences whose changes are listened to.
+     */
+    public void registerPreferenceChangeListener(PreferenceChangeListener listener, String... keys) {
+        if (keys.length == 0) {
+            return;
+        }
+        synchronized (mChangeListeners) {
+            for (String key : keys) {
+                CopyOnWriteArrayList<PreferenceChangeListener> listeners = mChangeListeners.get(key);
+                if (listeners == null) {
+                    listeners = new CopyOnWriteArrayList<>();
+                    mChangeListeners.put(key, listeners);
+                }
+                listeners.addIfAbsent(listener);
+            }
+            if (!mIsDispatcherRegistered) {
+                registerChangeDispatcher();
+            }
+        }
+    }
+
+    /**
+     * Unregisters listener from changes of specified keys.
+     * @param listener Listener that was registered with {@link #registerPreferenceChangeListener(PreferenceChangeListener, String...)}.
+     * @param keys Keys of preferences whose changes should not be listened to anymore.
+     */
+    public void unregisterPreferenceChangeListener(PreferenceChangeListener listener, String... keys) {
+        synchronized (mChangeListeners) {
+            for (String key : keys) {
+                CopyOnWriteArrayList<PreferenceChangeListener> listeners = mChangeListeners.get(key);
+                if (listeners != null && listeners.remove(listener) && listeners.isEmpty()) {
+                    mChangeListeners.remove(key);
+                }
+            }
+        }
+    }
+
+    private void registerChangeDispatcher() {
+        if (mStore != null) {
+            mStore.registerOnChangeListener(mChangeDispatcher);
+            mIsDispatcherRegistered = true;
+        }
+    }
+
+    private void dispatchChange(String key) {
+        long start = PreferenceTracer.start();
+        if (key == null) {
+            // preferences were cleared, so every key that has listeners may have changed
+            for (Map.Entry<String, CopyOnWriteArrayList<PreferenceChangeListener>> entry : mChangeListeners.entrySet()) {
+                for (PreferenceChangeListener listener : entry.getValue()) {
+                    listener.onPreferenceChanged(this, entry.getKey());
+                }
+            }
+        } else {
+            CopyOnWriteArrayList<PreferenceChangeListener> listeners = mChangeListeners.get(key);
+            if (listeners != null) {
+                for (PreferenceChangeListener listener : listeners) {
+                    listener.onPreferenceChanged(this, key);
+                }
+            }
+        }
+        if (start != PreferenceTracer.DISABLED) {
+            PreferenceTracer.trace(this, PreferenceMonitor.Operation.CHANGE, key, null, 0, start);
+        }
     }
 }
@@ -0,0 +1,118 @@
+package com.armdroid.smartpreferences;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Values of several preferences read at a single moment with {@link PreferenceRepository#snapshot(String...)}.
+ * Snapshot never changes, so all its values are consistent with each other. Getters behave like getters of
+ * {@link PreferenceRepository}: default value is returned for missing keys and {@link ClassCastException} is thrown
+ * if value is of other type.
+ */
+public final class PreferenceSnapshot {
+
+    private final Map<String, ?> mValues;
+
+    PreferenceSnapshot(Map<String, ?> values) {
+        mValues = values;
+    }
+
+    public String getString(String key, String defaultValue) {
+        String value = (String) mValues.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        Integer value = (Integer) mValues.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public long getLong(String key, long defaultValue) {
+        Long value = (Long) mValues.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public float getFloat(String key, float defaultValue) {
+        Float value = (Float) mValues.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        Boolean value = (Boolean) mValues.get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * See {@link PreferenceRepository#getDouble(String, double)}.
+     */
+    public double getDouble(String key, double defaultValue) {
+        Long value = (Long) mValues.get(key);
+        return value != null ? Double.longBitsToDouble(value) : defaultValue;
+    }
+
+    /**
+     * See {@link PreferenceRepository#getStringSet(String, Set)}.
+     */
+    @SuppressWarnings("unchecked")
+    public Set<String> getStringSet(String key, Set<String> defaultValue) {
+        Set<String> value = (Set<String>) mValues.get(key);
+        return value != null ? new HashSet<>(value) : defaultValue;
+    }
+
+    /**
+     * See {@link PreferenceRepository#getBytes(String, byte[])}.
+     */
+    public byte[] getBytes(String key, byte[] defaultValue) {
+        String value = (String) mValues.get(key);
+        return value != null ? Base64Codec.decode(value) : defaultValue;
+    }
+
+    /**
+     * See {@link PreferenceRepository#getIntArray(String, int[])}.
+     */
+    public int[] getIntArray(String key, int[] defaultValue) {
+        String value = (String) mValues.get(key);
+        return value != null ? PackedArrayCodec.decodeInts(value) : defaultValue;
+    }
+
+    /**
+     * See {@link PreferenceRepository#getLongArray(String, long[])}.
+     */
+    public long[] getLongArray(String key, long[] defaultValue) {
+        String value = (String) mValues.get(key);
+        return value != null ? PackedArrayCodec.decodeLongs(value) : defaultValue;
+    }
+
+    /**
+     * See {@link PreferenceRepository#getFloatArray(String, float[])}.
+     */
+    public float[] getFloatArray(String key, float[] defaultValue) {
+        String value = (String) mValues.get(key);
+        return value != null ? PackedArrayCodec.decodeFloats(value) : defaultValue;
+    }
+
+    /**
+     * See {@link PreferenceRepository#getDoubleArray(String, double[])}.
+     */
+    public double[] getDoubleArray(String key, double[] defaultValue) {
+        String value = (String) mValues.get(key);
+        return value != null ? PackedArrayCodec.decodeDoubles(value) : defaultValue;
+    }
+
+    /**
+     * @param key Key to be searched.
+     * @return true if snapshot contains value of the key, false otherwise.
+     */
+    public boolean contains(String key) {
+        return mValues.containsKey(key);
+    }
+
+    int sizeOf(String... keys) {
+        int size = 0;
+        for (String key : keys) {
+            size += PreferenceTracer.sizeOf(mValues.get(key));
+        }
+        return size;
+    }
+}
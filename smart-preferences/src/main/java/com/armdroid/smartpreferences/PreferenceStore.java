@@ -0,0 +1,114 @@
+package com.armdroid.smartpreferences;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Storage backend behind {@link PreferenceRepository}. Library provides {@link SharedPreferencesStore}, which is used
+ * by default, and {@link InMemoryPreferenceStore}, which does not depend on Android framework and can be used
+ * in tests and benchmarks on a plain JVM. Other implementations can be set with
+ * {@link PreferenceRepository#setPreferenceStore(PreferenceStore)} or for every preferences file with
+ * {@link SmartPreferences#initialize(String, PreferenceStoreFactory)}.
+ * <br><br>
+ * Implementations must be thread-safe. Getters must throw {@link ClassCastException} if value associated with key
+ * is of other type, the same way as {@link android.content.SharedPreferences} does.
+ */
+public interface PreferenceStore {
+
+    String getString(String key, String defaultValue);
+
+    /**
+     * Returned set must not be modified.
+     */
+    Set<String> getStringSet(String key, Set<String> defaultValue);
+
+    int getInt(String key, int defaultValue);
+
+    long getLong(String key, long defaultValue);
+
+    float getFloat(String key, float defaultValue);
+
+    boolean getBoolean(String key, boolean defaultValue);
+
+    boolean contains(String key);
+
+    /**
+     * @return Map of all key/value pairs. Returned map must not be modified.
+     */
+    Map<String, ?> getAll();
+
+    /**
+     * Returns values of given keys as they were at a single moment, so that a batch of changes applied concurrently
+     * is either seen as a whole or not at all. Reading of keys one by one does not give such guarantee.
+     * @param keys Keys whose values are returned.
+     * @return Map which contains values of given keys that exist in the store. It may contain other keys as well
+     * and must not be modified.
+     */
+    Map<String, ?> getValues(String... keys);
+
+    /**
+     * @return New instance of {@link Editor} that collects a batch of changes.
+     */
+    Editor edit();
+
+    /**
+     * Registers listener that is notified after changes are applied. Unlike {@link android.content.SharedPreferences},
+     * store keeps a strong reference to the listener.
+     */
+    void registerOnChangeListener(OnChangeListener listener);
+
+    void unregisterOnChangeListener(OnChangeListener listener);
+
+    /**
+     * Batch of changes which are applied together. Putting null String or string set value is the same as removing
+     * the key.
+     */
+    interface Editor {
+
+        Editor putString(String key, String value);
+
+        /**
+         * Store must keep its own copy of values, so that the set can be modified after it is put.
+         */
+        Editor putStringSet(String key, Set<String> values);
+
+        Editor putInt(String key, int value);
+
+        Editor putLong(String key, long value);
+
+        Editor putFloat(String key, float value);
+
+        Editor putBoolean(String key, boolean value);
+
+        Editor remove(String key);
+
+        /**
+         * Removes all key/value pairs. Clearing is done before other changes of the batch are applied.
+         */
+        Editor clear();
+
+        /**
+         * Applies changes to memory immediately and persists them asynchronously.
+         */
+        void apply();
+
+        /**
+         * Applies changes and persists them synchronously.
+         * @return true if changes were successfully persisted, false otherwise.
+         */
+        boolean commit();
+    }
+
+    /**
+     * Listener of changes in {@link PreferenceStore}.
+     */
+    interface OnChangeListener {
+
+        /**
+         * Called after value associated with key was changed or removed.
+         * @param store Store that was changed.
+         * @param key Key of changed value or null if store was cleared.
+         */
+        void onChanged(PreferenceStore store, String key);
+    }
+}
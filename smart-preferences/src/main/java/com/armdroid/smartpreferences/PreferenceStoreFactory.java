@@ -0,0 +1,14 @@
+package com.armdroid.smartpreferences;
+
+/**
+ * Creates {@link PreferenceStore} for preferences file. It is used by {@link SmartPreferences} to open the default
+ * file and files set with {@link PreferenceFile}.
+ */
+public interface PreferenceStoreFactory {
+
+    /**
+     * @param fileName Name of preferences file.
+     * @return Store which keeps preferences of the file.
+     */
+    PreferenceStore create(String fileName);
+}
@@ -0,0 +1,297 @@
+package com.armdroid.smartpreferences;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stream of new values of an observed field. Generated classes create one stream for every field annotated with
+ * {@link Observe}, which emits new value of the field whenever its preference changes while changes are observed
+ * (see {@link PreferenceBinder#observeChanges()}), and completes once generated class is unbound.
+ * <br><br>
+ * Unlike {@link Subscribe} methods, which are called synchronously for every change, subscribers of stream choose
+ * the executor on which values are delivered and request values when they are able to process them. Changes which
+ * happen in the meantime are conflated according to {@link Conflation}, so a preference changing a thousand times
+ * a second does not make subscriber run a thousand times:
+ * <pre><code>
+ * binder.getCustomStream().subscribe(new PreferenceSubscriber&lt;Custom&gt;() {
+ *     public void onSubscribe(PreferenceSubscription subscription) {
+ *         subscription.request(Long.MAX_VALUE);
+ *     }
+ *     public void onNext(Custom value) {
+ *         render(value);
+ *     }
+ *     ...
+ * }, mainThreadExecutor, Conflation.debounce(100));
+ * </code></pre>
+ * @param <T> Type of values.
+ */
+public final class PreferenceStream<T> {
+
+    private final CopyOnWriteArrayList<StreamSubscription<T>> mSubscriptions = new CopyOnWriteArrayList<>();
+    private volatile boolean mIsCompleted;
+
+    /**
+     * Same as {@link #subscribe(PreferenceSubscriber, Executor, Conflation)} with {@link Conflation#LATEST}.
+     */
+    public void subscribe(PreferenceSubscriber<? super T> subscriber, Executor executor) {
+        subscribe(subscriber, executor, Conflation.LATEST);
+    }
+
+    /**
+     * Subscribes to values emitted from now on. Subscribing to completed stream completes subscriber immediately.
+     * @param subscriber Subscriber to which values are delivered.
+     * @param executor Executor on which all methods of subscriber are called.
+     * @param conflation Conflation of changes which were not delivered yet.
+     */
+    public void subscribe(PreferenceSubscriber<? super T> subscriber, Executor executor, Conflation conflation) {
+        StreamSubscription<T> subscription = new StreamSubscription<>(this, subscriber, executor, conflation);
+        mSubscriptions.add(subscription);
+        if (mIsCompleted) {
+            mSubscriptions.remove(subscription);
+            subscription.complete();
+        }
+        subscription.start();
+    }
+
+    /**
+     * @return true if stream has subscribers which were neither cancelled nor completed.
+     */
+    public boolean hasSubscribers() {
+        return !mSubscriptions.isEmpty();
+    }
+
+    /**
+     * Emits new value to all subscribers. It is called by generated classes.
+     * @param value New value.
+     */
+    public void emit(T value) {
+        for (StreamSubscription<T> subscription : mSubscriptions) {
+            subscription.offer(value);
+        }
+    }
+
+    /**
+     * Completes all subscribers, after values which are ready and requested are delivered. It is called by generated
+     * classes once they are unbound.
+     */
+    public void complete() {
+        mIsCompleted = true;
+        for (StreamSubscription<T> subscription : mSubscriptions) {
+            subscription.complete();
+        }
+        mSubscriptions.clear();
+    }
+
+    private void remove(StreamSubscription<T> subscription) {
+        mSubscriptions.remove(subscription);
+    }
+
+    /**
+     * Subscription which keeps at most one undelivered value. Signals are delivered by a single task at a time, which
+     * is submitted to the executor of subscriber only when there is something to deliver, so they never overlap and
+     * are never reordered.
+     */
+    private static final class StreamSubscription<T> implements PreferenceSubscription, Runnable {
+
+        private final PreferenceStream<T> mStream;
+        private final PreferenceSubscriber<? super T> mSubscriber;
+        private final Executor mExecutor;
+        private final long mDelayNanos;
+        private final Runnable mDebounceTask = new Runnable() {
+            @Override
+            public void run() {
+                onDebounceTimeout();
+            }
+        };
+
+        // guarded by this
+        private boolean mIsSubscribed;
+        private long mRequested;
+        private T mValue;
+        private boolean mHasValue;
+        private T mDebouncedValue;
+        private boolean mHasDebouncedValue;
+        private long mLastChangeNanos;
+        private boolean mIsDebounceScheduled;
+        private Throwable mError;
+        private boolean mIsCompleted;
+        private boolean mIsCancelled;
+        private boolean mIsTerminated;
+        private boolean mIsDrainScheduled;
+
+        StreamSubscription(PreferenceStream<T> stream,
+                           PreferenceSubscriber<? super T> subscriber,
+                           Executor executor,
+                           Conflation conflation) {
+            mStream = stream;
+            mSubscriber = subscriber;
+            mExecutor = executor;
+            mDelayNanos = TimeUnit.MILLISECONDS.toNanos(conflation.getDelayMillis());
+        }
+
+        void start() {
+            synchronized (this) {
+                mIsDrainScheduled = true;
+            }
+            mExecutor.execute(this);
+        }
+
+        void offer(T value) {
+            boolean isDebounceScheduled = false;
+            synchronized (this) {
+                if (mIsCancelled || mIsCompleted) {
+                    return;
+                }
+                if (mDelayNanos > 0) {
+                    mDebouncedValue = value;
+                    mHasDebouncedValue = true;
+                    mLastChangeNanos = System.nanoTime();
+                    if (!mIsDebounceScheduled) {
+                        mIsDebounceScheduled = true;
+                        isDebounceScheduled = true;
+                    }
+                } else {
+                    mValue = value;
+                    mHasValue = true;
+                }
+            }
+            if (isDebounceScheduled) {
+                PreferenceExecutors.SCHEDULER.schedule(mDebounceTask, mDelayNanos, TimeUnit.NANOSECONDS);
+            } else if (mDelayNanos == 0) {
+                signal();
+            }
+        }
+
+        /**
+         * Timer is not rescheduled on every change. Instead, it checks when the last change happened and waits
+         * for the rest of the delay if needed.
+         */
+        private void onDebounceTimeout() {
+            long remainingNanos;
+            synchronized (this) {
+                remainingNanos = mDelayNanos - (System.nanoTime() - mLastChangeNanos);
+                if (remainingNanos <= 0) {
+                    mIsDebounceScheduled = false;
+                    releaseDebouncedValue();
+                }
+            }
+            if (remainingNanos > 0) {
+                PreferenceExecutors.SCHEDULER.schedule(mDebounceTask, remainingNanos, TimeUnit.NANOSECONDS);
+            } else {
+                signal();
+            }
+        }
+
+        private void releaseDebouncedValue() {
+            if (mHasDebouncedValue) {
+                mValue = mDebouncedValue;
+                mHasValue = true;
+                mDebouncedValue = null;
+                mHasDebouncedValue = false;
+            }
+        }
+
+        void complete() {
+            synchronized (this) {
+                mIsCompleted = true;
+                releaseDebouncedValue();
+            }
+            signal();
+        }
+
+        @Override
+        public void request(long count) {
+            synchronized (this) {
+                if (count <= 0) {
+                    mError = new IllegalArgumentException("Number of requested values must be positive, was " + count);
+                } else {
+                    mRequested = mRequested + count < 0 ? Long.MAX_VALUE : mRequested + count;
+                }
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                mIsCancelled = true;
+                mValue = null;
+                mDebouncedValue = null;
+            }
+            mStream.remove(this);
+        }
+
+        private void signal() {
+            synchronized (this) {
+                if (mIsDrainScheduled || mIsCancelled || mIsTerminated
+                        || !(mHasValue && mRequested > 0 || mError != null || mIsCompleted)) {
+                    return;
+                }
+                mIsDrainScheduled = true;
+            }
+            mExecutor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (drain()) {
+                    // deliver signals until there is nothing to deliver
+                }
+            } catch (RuntimeException e) {
+                cancel();
+                synchronized (this) {
+                    mIsDrainScheduled = false;
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * @return true if a signal was delivered, false if there was nothing to deliver.
+         */
+        private boolean drain() {
+            T value = null;
+            Throwable error = null;
+            boolean isSubscribe = false;
+            boolean isNext = false;
+            synchronized (this) {
+                if (!mIsSubscribed) {
+                    mIsSubscribed = true;
+                    isSubscribe = true;
+                } else if (mIsCancelled || mIsTerminated) {
+                    mIsDrainScheduled = false;
+                    return false;
+                } else if (mError != null) {
+                    error = mError;
+                    mIsTerminated = true;
+                } else if (mHasValue && mRequested > 0) {
+                    value = mValue;
+                    mValue = null;
+                    mHasValue = false;
+                    if (mRequested != Long.MAX_VALUE) {
+                        mRequested--;
+                    }
+                    isNext = true;
+                } else if (mIsCompleted) {
+                    mIsTerminated = true;
+                } else {
+                    mIsDrainScheduled = false;
+                    return false;
+                }
+            }
+            if (isSubscribe) {
+                mSubscriber.onSubscribe(this);
+            } else if (isNext) {
+                mSubscriber.onNext(value);
+            } else if (error != null) {
+                mStream.remove(this);
+                mSubscriber.onError(error);
+            } else {
+                mSubscriber.onComplete();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.armdroid.smartpreferences;
+
+/**
+ * Receives values of {@link PreferenceStream}. Methods are called one at a time, in order, on the executor given to
+ * {@link PreferenceStream#subscribe(PreferenceSubscriber, java.util.concurrent.Executor, Conflation)}. No value is
+ * delivered until it is requested with {@link PreferenceSubscription#request(long)}.
+ * @param <T> Type of values.
+ */
+public interface PreferenceSubscriber<T> {
+
+    /**
+     * Called first, before any other method.
+     * @param subscription Subscription through which values are requested and which cancels delivery.
+     */
+    void onSubscribe(PreferenceSubscription subscription);
+
+    /**
+     * Called with new value of preference, once for every requested value. Values that changed faster than they were
+     * requested or delivered are conflated, so only the latest of them is delivered.
+     * @param value New value.
+     */
+    void onNext(T value);
+
+    /**
+     * Called if subscription failed, for example when non-positive number of values was requested. No other method
+     * is called afterwards.
+     * @param error Cause of the failure.
+     */
+    void onError(Throwable error);
+
+    /**
+     * Called once stream is completed, that is when generated class is unbound. No other method is called afterwards.
+     */
+    void onComplete();
+}
@@ -0,0 +1,20 @@
+package com.armdroid.smartpreferences;
+
+/**
+ * Link between {@link PreferenceStream} and {@link PreferenceSubscriber}, which is passed to
+ * {@link PreferenceSubscriber#onSubscribe(PreferenceSubscription)}.
+ */
+public interface PreferenceSubscription {
+
+    /**
+     * Requests more values. Until they are delivered, changes are conflated according to {@link Conflation} of the
+     * subscription, so that subscriber is never called more often than it asks for.
+     * @param count Number of values, {@link Long#MAX_VALUE} for no limit.
+     */
+    void request(long count);
+
+    /**
+     * Stops delivery of values. Value which is being delivered at the moment may still be delivered.
+     */
+    void cancel();
+}
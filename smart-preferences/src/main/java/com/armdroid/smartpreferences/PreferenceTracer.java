@@ -0,0 +1,110 @@
+package com.armdroid.smartpreferences;
+
+import java.util.Set;
+
+/**
+ * Reports operations to {@link PreferenceMonitor} if one is set. When no monitor is set, the only cost of an operation
+ * is a check of {@link #start()} result, values are neither boxed nor measured:
+ * <pre>
+ * long start = PreferenceTracer.start();
+ * int value = store.getInt(key, defaultValue);
+ * if (start != PreferenceTracer.DISABLED) {
+ *     PreferenceTracer.trace(repository, Operation.GET, key, value, start);
+ * }
+ * </pre>
+ */
+final class PreferenceTracer {
+
+    /**
+     * Returned by {@link #start()} when no monitor is set.
+     */
+    static final long DISABLED = Long.MIN_VALUE;
+
+    private static final String LIBRARY_PACKAGE = "com.armdroid.smartpreferences.";
+
+    private static volatile PreferenceMonitor sMonitor;
+
+    private PreferenceTracer() {
+    }
+
+    static void setMonitor(PreferenceMonitor monitor) {
+        sMonitor = monitor;
+    }
+
+    static long start() {
+        return sMonitor != null ? System.nanoTime() : DISABLED;
+    }
+
+    static void trace(PreferenceRepository repository, PreferenceMonitor.Operation operation, String key, Object value, long start) {
+        trace(repository, operation, key, value != null ? value.getClass() : null, sizeOf(value), start);
+    }
+
+    static void trace(PreferenceRepository repository,
+                      PreferenceMonitor.Operation operation,
+                      String key,
+                      Class<?> valueType,
+                      int size,
+                      long start) {
+        long duration = System.nanoTime() - start;
+        PreferenceMonitor monitor = sMonitor;
+        if (monitor != null) {
+            String caller = operation != PreferenceMonitor.Operation.CHANGE ? findCaller() : null;
+            monitor.onOperation(repository, operation, key, valueType, size, duration, caller);
+        }
+    }
+
+    /**
+     * @return Size of value as it is encoded by {@link PreferenceRecordCodec}.
+     */
+    static int sizeOf(Object value) {
+        if (value instanceof String) {
+            return utf8Length((String) value);
+        } else if (value instanceof Integer || value instanceof Float) {
+            return 4;
+        } else if (value instanceof Long) {
+            return 8;
+        } else if (value instanceof Boolean) {
+            return 1;
+        } else if (value instanceof Set) {
+            int size = 4;
+            for (Object string : (Set<?>) value) {
+                size += 4 + utf8Length((String) string);
+            }
+            return size;
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        return 0;
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Stack is walked only when monitor is set, so its cost is paid only while monitoring.
+     */
+    private static String findCaller() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            String className = element.getClassName();
+            if (!className.startsWith(LIBRARY_PACKAGE) || className.indexOf('.', LIBRARY_PACKAGE.length()) >= 0) {
+                return className;
+            }
+        }
+        return null;
+    }
+}
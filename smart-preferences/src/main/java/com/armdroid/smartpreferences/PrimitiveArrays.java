@@ -0,0 +1,108 @@
+package com.armdroid.smartpreferences;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Conversions between primitive arrays and lists of boxed values. They are used by generated classes for list fields
+ * annotated with {@link IntArrayPreference}, {@link LongArrayPreference}, {@link FloatArrayPreference} or
+ * {@link DoubleArrayPreference}, whose values are stored as primitive arrays. All methods return null for null.
+ * Converting list which contains null throws {@link NullPointerException}.
+ */
+public final class PrimitiveArrays {
+
+    private PrimitiveArrays() {
+    }
+
+    public static List<Integer> toList(int[] values) {
+        if (values == null) {
+            return null;
+        }
+        List<Integer> list = new ArrayList<>(values.length);
+        for (int value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    public static List<Long> toList(long[] values) {
+        if (values == null) {
+            return null;
+        }
+        List<Long> list = new ArrayList<>(values.length);
+        for (long value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    public static List<Float> toList(float[] values) {
+        if (values == null) {
+            return null;
+        }
+        List<Float> list = new ArrayList<>(values.length);
+        for (float value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    public static List<Double> toList(double[] values) {
+        if (values == null) {
+            return null;
+        }
+        List<Double> list = new ArrayList<>(values.length);
+        for (double value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    public static int[] toIntArray(List<Integer> list) {
+        if (list == null) {
+            return null;
+        }
+        int[] values = new int[list.size()];
+        int i = 0;
+        for (Integer value : list) {
+            values[i++] = value;
+        }
+        return values;
+    }
+
+    public static long[] toLongArray(List<Long> list) {
+        if (list == null) {
+            return null;
+        }
+        long[] values = new long[list.size()];
+        int i = 0;
+        for (Long value : list) {
+            values[i++] = value;
+        }
+        return values;
+    }
+
+    public static float[] toFloatArray(List<Float> list) {
+        if (list == null) {
+            return null;
+        }
+        float[] values = new float[list.size()];
+        int i = 0;
+        for (Float value : list) {
+            values[i++] = value;
+        }
+        return values;
+    }
+
+    public static double[] toDoubleArray(List<Double> list) {
+        if (list == null) {
+            return null;
+        }
+        double[] values = new double[list.size()];
+        int i = 0;
+        for (Double value : list) {
+            values[i++] = value;
+        }
+        return values;
+    }
+}
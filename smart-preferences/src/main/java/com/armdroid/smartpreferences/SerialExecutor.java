@@ -0,0 +1,103 @@
+package com.armdroid.smartpreferences;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Executor which runs tasks one at a time, in the order in which they were submitted, on another executor. It is used
+ * by generated classes to decode and deliver changes on executors set with
+ * {@link PreferenceBinder#setChangeExecutors(Executor, Executor)}, so that changes are never reordered even if those
+ * executors run tasks concurrently or are replaced while tasks are pending.
+ * <br><br>
+ * Without executor, tasks run on the thread calling {@link #execute(Runnable)}, unless other tasks are pending,
+ * in which case the task runs after them on the thread which runs them.
+ */
+public final class SerialExecutor implements Executor {
+
+    private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+    private final Runnable mDrainTask = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+    // guarded by mTasks
+    private Executor mExecutor;
+    private boolean mIsDrainScheduled;
+
+    /**
+     * @param executor Executor on which tasks run, or null to run them on the thread calling {@link #execute(Runnable)}.
+     */
+    public SerialExecutor(Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Replaces executor on which tasks run. Pending tasks still run before tasks submitted afterwards: they keep
+     * running on the previous executor and tasks submitted in the meantime run after them.
+     * @param executor Executor on which tasks run, or null to run them on the thread calling {@link #execute(Runnable)}.
+     */
+    public void setExecutor(Executor executor) {
+        synchronized (mTasks) {
+            mExecutor = executor;
+        }
+    }
+
+    /**
+     * @return True if there is no executor and no pending task, so that task submitted now would run immediately on
+     * the calling thread.
+     */
+    public boolean isInline() {
+        synchronized (mTasks) {
+            return mExecutor == null && !mIsDrainScheduled && mTasks.isEmpty();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Executor executor;
+        synchronized (mTasks) {
+            mTasks.add(task);
+            if (mIsDrainScheduled) {
+                return;
+            }
+            mIsDrainScheduled = true;
+            executor = mExecutor;
+        }
+        if (executor != null) {
+            executor.execute(mDrainTask);
+        } else {
+            drain();
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable task;
+            synchronized (mTasks) {
+                task = mTasks.poll();
+                if (task == null) {
+                    mIsDrainScheduled = false;
+                    return;
+                }
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // remaining tasks run in a new drain, so that failure of one task does not stop the others;
+                // without executor, they run before the next submitted task
+                Executor executor;
+                boolean isDrainScheduled;
+                synchronized (mTasks) {
+                    executor = mExecutor;
+                    isDrainScheduled = executor != null && !mTasks.isEmpty();
+                    mIsDrainScheduled = isDrainScheduled;
+                }
+                if (isDrainScheduled) {
+                    executor.execute(mDrainTask);
+                }
+                throw e;
+            }
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.armdroid.smartpreferences;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link PreferenceStore} backed by {@link SharedPreferences}. This is the default store of SmartPreferences.
+ */
+public class SharedPreferencesStore implements PreferenceStore {
+
+    private final SharedPreferences mPreferences;
+
+    /**
+     * {@link SharedPreferences} holds only weak references to listeners, so wrappers are kept here.
+     */
+    private final Map<OnChangeListener, SharedPreferences.OnSharedPreferenceChangeListener> mListeners = new ConcurrentHashMap<>();
+
+    public SharedPreferencesStore(SharedPreferences preferences) {
+        mPreferences = preferences;
+    }
+
+    /**
+     * Returns factory that creates stores backed by {@link SharedPreferences} of the given context.
+     * @param context Context used to open preferences files.
+     * @return Factory of {@link SharedPreferencesStore}.
+     */
+    public static PreferenceStoreFactory factory(final Context context) {
+        return new PreferenceStoreFactory() {
+            @Override
+            public PreferenceStore create(String fileName) {
+                return new SharedPreferencesStore(context.getSharedPreferences(fileName, Context.MODE_PRIVATE));
+            }
+        };
+    }
+
+    /**
+     * @return Instance of {@link SharedPreferences} this store is backed by.
+     */
+    public SharedPreferences getSharedPreferences() {
+        return mPreferences;
+    }
+
+    @Override
+    public String getString(String key, String defaultValue) {
+        return mPreferences.getString(key, defaultValue);
+    }
+
+    @Override
+    public Set<String> getStringSet(String key, Set<String> defaultValue) {
+        return mPreferences.getStringSet(key, defaultValue);
+    }
+
+    @Override
+    public int getInt(String key, int defaultValue) {
+        return mPreferences.getInt(key, defaultValue);
+    }
+
+    @Override
+    public long getLong(String key, long defaultValue) {
+        return mPreferences.getLong(key, defaultValue);
+    }
+
+    @Override
+    public float getFloat(String key, float defaultValue) {
+        return mPreferences.getFloat(key, defaultValue);
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defaultValue) {
+        return mPreferences.getBoolean(key, defaultValue);
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return mPreferences.contains(key);
+    }
+
+    @Override
+    public Map<String, ?> getAll() {
+        return mPreferences.getAll();
+    }
+
+    /**
+     * {@link SharedPreferences} has no way to read several keys at once, but it copies all values under its lock
+     * in {@link SharedPreferences#getAll()}, so the copy is returned. Its cost grows with the size of the file rather
+     * than with the number of given keys, which is the price of consistency: values of unknown type can be read only
+     * with {@link SharedPreferences#getAll()}, and reading keys one by one would not see a batch of changes as a
+     * whole. Large files should be split with {@link PreferenceFile} or kept in {@link BinaryPreferenceStore}, which
+     * copies given keys only. See SnapshotBenchmark in smart-preferences-benchmark module.
+     */
+    @Override
+    public Map<String, ?> getValues(String... keys) {
+        return mPreferences.getAll();
+    }
+
+    @Override
+    public Editor edit() {
+        return new SharedPreferencesEditor(mPreferences.edit());
+    }
+
+    @Override
+    public void registerOnChangeListener(final OnChangeListener listener) {
+        SharedPreferences.OnSharedPreferenceChangeListener preferenceListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
+            @Override
+            public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
+                listener.onChanged(SharedPreferencesStore.this, key);
+            }
+        };
+        if (mListeners.put(listener, preferenceListener) == null) {
+            mPreferences.registerOnSharedPreferenceChangeListener(preferenceListener);
+        }
+    }
+
+    @Override
+    public void unregisterOnChangeListener(OnChangeListener listener) {
+        SharedPreferences.OnSharedPreferenceChangeListener preferenceListener = mListeners.remove(listener);
+        if (preferenceListener != null) {
+            mPreferences.unregisterOnSharedPreferenceChangeListener(preferenceListener);
+        }
+    }
+
+    private static class SharedPreferencesEditor implements Editor {
+
+        private final SharedPreferences.Editor mEditor;
+
+        SharedPreferencesEditor(SharedPreferences.Editor editor) {
+            mEditor = editor;
+        }
+
+        @Override
+        public Editor putString(String key, String value) {
+            mEditor.putString(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putStringSet(String key, Set<String> values) {
+            mEditor.putStringSet(key, values);
+            return this;
+        }
+
+        @Override
+        public Editor putInt(String key, int value) {
+            mEditor.putInt(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putLong(String key, long value) {
+            mEditor.putLong(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putFloat(String key, float value) {
+            mEditor.putFloat(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor putBoolean(String key, boolean value) {
+            mEditor.putBoolean(key, value);
+            return this;
+        }
+
+        @Override
+        public Editor remove(String key) {
+            mEditor.remove(key);
+            return this;
+        }
+
+        @Override
+        public Editor clear() {
+            mEditor.clear();
+            return this;
+        }
+
+        @Override
+        public void apply() {
+            mEditor.apply();
+        }
+
+        @Override
+        public boolean commit() {
+            return mEditor.commit();
+        }
+    }
+}
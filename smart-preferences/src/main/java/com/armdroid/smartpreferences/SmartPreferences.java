@@ -1,11 +1,20 @@
 package com.armdroid.smartpreferences;
 
+import android.app.Activity;
 import android.app.Application;
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.os.Bundle;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 
 public class SmartPreferences {
 
+    private static volatile PreferenceStoreFactory sStoreFactory;
+    private static volatile PreferenceFuture<PreferenceRepository> sReadiness;
+    private static volatile Executor sExecutor = PreferenceExecutors.BACKGROUND;
+    private static volatile FlushPolicy sFlushPolicy = FlushPolicy.IMMEDIATE;
+
     /**
      * Required initialization call in order to use the features of SmartPreferences library.
      * Library sets up shared preferences that are kept in filesDir/{PACKAGE_NAME}.preferences file
@@ -14,9 +23,207 @@ public class SmartPreferences {
      * @param applicationContext Application context of the app.
      */
     public static void initialize(Context applicationContext) {
-        String fileName = applicationContext.getPackageName() + ".preferences";
-        SharedPreferences preferences = applicationContext.getSharedPreferences(fileName, Context.MODE_PRIVATE);
-        PreferenceRepository.getInstance().setPreferences(preferences);
+        initialize(applicationContext, SharedPreferencesStore.factory(applicationContext));
+    }
+
+    /**
+     * Same as {@link #initialize(Context)}, but preferences files are kept in stores created by given factory
+     * instead of {@link android.content.SharedPreferences}.
+     * @param applicationContext Application context of the app.
+     * @param storeFactory Factory that creates store for every preferences file.
+     */
+    public static void initialize(Context applicationContext, PreferenceStoreFactory storeFactory) {
+        initialize(applicationContext.getPackageName() + ".preferences", storeFactory);
+    }
+
+    /**
+     * Initialization call which does not require {@link Context}, so that library can be used on a plain JVM,
+     * for example with {@link InMemoryPreferenceStore}.
+     * @param defaultFileName Name of the file used by classes without {@link PreferenceFile} annotation.
+     * @param storeFactory Factory that creates store for every preferences file.
+     */
+    public static void initialize(String defaultFileName, PreferenceStoreFactory storeFactory) {
+        sStoreFactory = storeFactory;
+        PreferenceRepository.getInstance().setPreferenceStore(storeFactory.create(defaultFileName));
+        PreferenceRepository.registerDefaultFile(defaultFileName);
+        sReadiness = PreferenceFuture.completed(PreferenceRepository.getInstance());
+    }
+
+    /**
+     * Same as {@link #initialize(Context)}, but preferences are loaded on given executor, so this method returns
+     * immediately. Methods of {@link PreferenceRepository} and generated classes called before loading is finished
+     * wait for it, while asynchronous methods of generated classes (e.g. readAndBindAsync) do not block.
+     * @param applicationContext Application context of the app.
+     * @param executor Executor on which preferences are loaded and asynchronous methods of generated classes run.
+     * @param fileNames Names of other preferences files (see {@link PreferenceFile}) loaded along with the default
+     *                  file. Files which are not listed are loaded when they are used for the first time.
+     * @return Future which is completed once preferences are loaded.
+     */
+    public static PreferenceFuture<PreferenceRepository> initializeAsync(Context applicationContext, Executor executor,
+                                                                         String... fileNames) {
+        return initializeAsync(applicationContext, SharedPreferencesStore.factory(applicationContext), executor, fileNames);
+    }
+
+    /**
+     * Asynchronous variant of {@link #initialize(Context, PreferenceStoreFactory)}.
+     * @see #initializeAsync(Context, Executor, String...)
+     */
+    public static PreferenceFuture<PreferenceRepository> initializeAsync(Context applicationContext,
+                                                                         PreferenceStoreFactory storeFactory,
+                                                                         Executor executor,
+                                                                         String... fileNames) {
+        return initializeAsync(applicationContext.getPackageName() + ".preferences", storeFactory, executor, fileNames);
+    }
+
+    /**
+     * Asynchronous variant of {@link #initialize(String, PreferenceStoreFactory)}.
+     * @see #initializeAsync(Context, Executor, String...)
+     */
+    public static PreferenceFuture<PreferenceRepository> initializeAsync(final String defaultFileName,
+                                                                         final PreferenceStoreFactory storeFactory,
+                                                                         Executor executor,
+                                                                         final String... fileNames) {
+        final PreferenceRepository repository = PreferenceRepository.getInstance();
+        final PreferenceFuture<PreferenceRepository> readiness = new PreferenceFuture<>();
+        sStoreFactory = storeFactory;
+        sExecutor = executor;
+        sReadiness = readiness;
+        repository.setPendingLoad(readiness);
+        PreferenceRepository.registerDefaultFile(defaultFileName);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    PreferenceStore store = storeFactory.create(defaultFileName);
+                    // stores which load lazily, like SharedPreferences, block until they are loaded
+                    store.contains(defaultFileName);
+                    repository.setPreferenceStore(store);
+                    for (String fileName : fileNames) {
+                        PreferenceRepository.getInstance(fileName).getPreferenceStore().contains(fileName);
+                    }
+                    readiness.set(repository);
+                } catch (Throwable e) {
+                    readiness.setException(e);
+                }
+            }
+        });
+        return readiness;
+    }
+
+    /**
+     * Returns future which is completed once preferences are loaded. It is completed immediately if library was
+     * initialized synchronously.
+     * @throws IllegalStateException if library was not initialized.
+     */
+    public static PreferenceFuture<PreferenceRepository> whenReady() {
+        PreferenceFuture<PreferenceRepository> readiness = sReadiness;
+        if (readiness == null) {
+            throw new IllegalStateException("SmartPreferences.initialize() must be called first");
+        }
+        return readiness;
+    }
+
+    /**
+     * Runs task once preferences are loaded. It is used by asynchronous methods of generated classes.
+     * Task runs on the executor passed to {@link #initializeAsync(String, PreferenceStoreFactory, Executor, String...)}, or
+     * on a background thread of the library if it was initialized synchronously.
+     * @param task Task to be run.
+     * @param <T> Type of result of the task.
+     * @return Future which is completed with the result of the task.
+     */
+    public static <T> PreferenceFuture<T> callWhenReady(final Callable<T> task) {
+        final PreferenceFuture<T> result = new PreferenceFuture<>();
+        whenReady().addCallback(new PreferenceCallback<PreferenceRepository>() {
+            @Override
+            public void onReady(PreferenceRepository repository) {
+                try {
+                    result.set(task.call());
+                } catch (Throwable e) {
+                    result.setException(e);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                result.setException(error);
+            }
+        }, sExecutor);
+        return result;
+    }
+
+    /**
+     * Sets monitor which is notified about every operation with preferences, e.g. {@link AggregatingPreferenceMonitor}.
+     * Monitoring has a cost, so it should be enabled only while looking for hot keys and oversized values.
+     * @param monitor Monitor to be notified, or null to disable monitoring, which is the default.
+     */
+    public static void setPreferenceMonitor(PreferenceMonitor monitor) {
+        PreferenceTracer.setMonitor(monitor);
+    }
+
+    /**
+     * Sets {@link FlushPolicy} of every repository, including repositories of preferences files opened later.
+     * Policy of a single repository can be changed with {@link PreferenceRepository#setFlushPolicy(FlushPolicy)}.
+     * @param policy Policy which decides when writes are written, {@link FlushPolicy#IMMEDIATE} by default.
+     */
+    public static void setFlushPolicy(FlushPolicy policy) {
+        sFlushPolicy = policy;
+        for (PreferenceRepository repository : PreferenceRepository.getInstances()) {
+            repository.setFlushPolicy(policy);
+        }
+    }
+
+    static FlushPolicy getFlushPolicy() {
+        return sFlushPolicy;
+    }
+
+    /**
+     * Makes buffered writes of all repositories be flushed whenever an activity is paused, so that they are written
+     * before the process may be killed. It should be called in {@link Application#onCreate()} if
+     * {@link FlushPolicy} other than {@link FlushPolicy#IMMEDIATE} is used.
+     * @param application Application whose activities are watched.
+     */
+    public static void flushOnActivityPause(Application application) {
+        application.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            }
+
+            @Override
+            public void onActivityStarted(Activity activity) {
+            }
+
+            @Override
+            public void onActivityResumed(Activity activity) {
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+                PreferenceRepository.flushAll();
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            }
+
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+            }
+        });
+    }
+
+    /**
+     * Opens preferences file with given name using the factory passed to {@link #initialize(String, PreferenceStoreFactory)}.
+     */
+    static PreferenceStore openPreferenceStore(String fileName) {
+        PreferenceStoreFactory storeFactory = sStoreFactory;
+        if (storeFactory == null) {
+            throw new IllegalStateException("SmartPreferences.initialize() must be called before opening preferences file " + fileName);
+        }
+        return storeFactory.create(fileName);
     }
 
 }
@@ -0,0 +1,321 @@
+package com.armdroid.smartpreferences;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffer of writes of {@link PreferenceRepository} which is used when its {@link FlushPolicy} is not immediate.
+ * Batches applied by editors from {@link #edit()} are merged into the buffer, so that only the last write of every key
+ * is written, and the whole buffer is written to {@link PreferenceStore} as a single batch.
+ * <br><br>
+ * Writes stay visible to {@link #get(String)} and {@link #overlay(Map)} until the store contains them: while the buffer
+ * is being written, its writes are kept as in-flight ones.
+ */
+final class WriteBuffer {
+
+    /**
+     * Returned by {@link #get(String)} if key has no buffered write, so its value must be read from the store.
+     */
+    static final Object MISSING = new Object();
+
+    /**
+     * Buffered removal of key.
+     */
+    private static final Object REMOVED = new Object();
+
+    private final PreferenceRepository mRepository;
+    private final FlushPolicy mPolicy;
+    private final Object mLock = new Object();
+    // makes batches reach the store in the order in which they were buffered
+    private final Object mFlushLock = new Object();
+    private final Runnable mFlushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+    // true if there are neither pending nor in-flight writes, so that reads do not have to lock
+    private volatile boolean mIsEmpty = true;
+
+    // guarded by mLock
+    private Map<String, Object> mPending = new LinkedHashMap<>();
+    private boolean mIsPendingClear;
+    private int mPendingWriteCount;
+    private Map<String, Object> mInFlight;
+    private boolean mIsInFlightClear;
+    private boolean mIsFlushScheduled;
+    private boolean mIsClosed;
+    private long mWriteCount;
+    private long mCoalescedWriteCount;
+    private long mFlushCount;
+
+    WriteBuffer(PreferenceRepository repository, FlushPolicy policy) {
+        mRepository = repository;
+        mPolicy = policy;
+    }
+
+    /**
+     * @return New editor whose changes are merged into this buffer once they are applied.
+     */
+    PreferenceStore.Editor edit() {
+        return new Editor();
+    }
+
+    /**
+     * @param key Key of preference.
+     * @return Buffered value of key, null if its removal is buffered, or {@link #MISSING} if there is no buffered write.
+     */
+    Object get(String key) {
+        if (mIsEmpty) {
+            return MISSING;
+        }
+        synchronized (mLock) {
+            Object value = get(mPending, mIsPendingClear, key);
+            if (value == MISSING && mInFlight != null) {
+                value = get(mInFlight, mIsInFlightClear, key);
+            }
+            return value != REMOVED ? value : null;
+        }
+    }
+
+    private static Object get(Map<String, Object> writes, boolean isClear, String key) {
+        Object value = writes.get(key);
+        if (value != null) {
+            return value;
+        }
+        return isClear ? REMOVED : MISSING;
+    }
+
+    /**
+     * @param values Values read from the store.
+     * @return Values with buffered writes applied to them.
+     */
+    Map<String, ?> overlay(Map<String, ?> values) {
+        if (mIsEmpty) {
+            return values;
+        }
+        synchronized (mLock) {
+            Map<String, Object> result = new HashMap<>(values);
+            if (mInFlight != null) {
+                overlay(result, mInFlight, mIsInFlightClear);
+            }
+            overlay(result, mPending, mIsPendingClear);
+            return result;
+        }
+    }
+
+    private static void overlay(Map<String, Object> values, Map<String, Object> writes, boolean isClear) {
+        if (isClear) {
+            values.clear();
+        }
+        for (Map.Entry<String, Object> entry : writes.entrySet()) {
+            if (entry.getValue() == REMOVED) {
+                values.remove(entry.getKey());
+            } else {
+                values.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    WriteStats getStats() {
+        synchronized (mLock) {
+            return new WriteStats(mWriteCount, mCoalescedWriteCount, mFlushCount, mPendingWriteCount);
+        }
+    }
+
+    /**
+     * @return True if buffer must be flushed now.
+     */
+    private boolean merge(boolean isClear, Map<String, Object> changes, int writeCount) {
+        boolean isFlushNeeded;
+        boolean isFlushScheduled = false;
+        synchronized (mLock) {
+            // writes replaced within the batch itself
+            long coalescedWriteCount = writeCount - changes.size() - (isClear ? 1 : 0);
+            if (isClear) {
+                coalescedWriteCount += mPending.size() + (mIsPendingClear ? 1 : 0);
+                mPending.clear();
+                mIsPendingClear = true;
+            }
+            for (Map.Entry<String, Object> entry : changes.entrySet()) {
+                // re-inserted so that iteration order follows the last write
+                if (mPending.remove(entry.getKey()) != null) {
+                    coalescedWriteCount++;
+                }
+                mPending.put(entry.getKey(), entry.getValue());
+            }
+            mWriteCount += writeCount;
+            mCoalescedWriteCount += coalescedWriteCount;
+            mPendingWriteCount += writeCount;
+            mIsEmpty = false;
+            isFlushNeeded = mIsClosed || mPendingWriteCount >= mPolicy.getMaxPendingWrites();
+            if (!isFlushNeeded && !mIsFlushScheduled && mPolicy.getDelayMillis() > 0) {
+                mIsFlushScheduled = true;
+                isFlushScheduled = true;
+            }
+        }
+        if (isFlushScheduled) {
+            PreferenceExecutors.SCHEDULER.schedule(mFlushTask, mPolicy.getDelayMillis(), TimeUnit.MILLISECONDS);
+        }
+        return isFlushNeeded;
+    }
+
+    /**
+     * Writes all buffered writes to the store as a single batch with {@link PreferenceStore.Editor#apply()}.
+     */
+    void flush() {
+        flush(false);
+    }
+
+    /**
+     * Writes remaining writes and makes all writes merged afterwards be written immediately. It is called when
+     * repository stops using this buffer, since editors created before may still be applied.
+     */
+    void close() {
+        synchronized (mLock) {
+            mIsClosed = true;
+        }
+        flush();
+    }
+
+    private boolean flush(boolean isCommit) {
+        synchronized (mFlushLock) {
+            Map<String, Object> changes;
+            boolean isClear;
+            synchronized (mLock) {
+                mIsFlushScheduled = false;
+                if (mPending.isEmpty() && !mIsPendingClear) {
+                    return true;
+                }
+                changes = mPending;
+                isClear = mIsPendingClear;
+                mInFlight = changes;
+                mIsInFlightClear = isClear;
+                mPending = new LinkedHashMap<>();
+                mIsPendingClear = false;
+                mPendingWriteCount = 0;
+                mFlushCount++;
+            }
+            try {
+                PreferenceStore.Editor editor = mRepository.getPreferenceStore().edit();
+                if (isClear) {
+                    editor.clear();
+                }
+                for (Map.Entry<String, Object> entry : changes.entrySet()) {
+                    put(editor, entry.getKey(), entry.getValue());
+                }
+                if (isCommit) {
+                    return editor.commit();
+                }
+                editor.apply();
+                return true;
+            } finally {
+                synchronized (mLock) {
+                    mInFlight = null;
+                    mIsEmpty = mPending.isEmpty() && !mIsPendingClear;
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(PreferenceStore.Editor editor, String key, Object value) {
+        if (value == REMOVED) {
+            editor.remove(key);
+        } else if (value instanceof String) {
+            editor.putString(key, (String) value);
+        } else if (value instanceof Integer) {
+            editor.putInt(key, (Integer) value);
+        } else if (value instanceof Long) {
+            editor.putLong(key, (Long) value);
+        } else if (value instanceof Float) {
+            editor.putFloat(key, (Float) value);
+        } else if (value instanceof Set) {
+            editor.putStringSet(key, (Set<String>) value);
+        } else {
+            editor.putBoolean(key, (Boolean) value);
+        }
+    }
+
+    /**
+     * Collects a batch of changes. Applied batch is merged into the buffer, committed batch is merged and the whole
+     * buffer is committed with it, so that result of {@link #commit()} tells whether the batch was persisted.
+     */
+    private final class Editor implements PreferenceStore.Editor {
+
+        private final Map<String, Object> mChanges = new LinkedHashMap<>();
+        private boolean mIsClear;
+        private int mWriteCount;
+
+        private PreferenceStore.Editor put(String key, Object value) {
+            mChanges.put(key, value != null ? value : REMOVED);
+            mWriteCount++;
+            return this;
+        }
+
+        @Override
+        public PreferenceStore.Editor putString(String key, String value) {
+            return put(key, value);
+        }
+
+        @Override
+        public PreferenceStore.Editor putStringSet(String key, Set<String> values) {
+            return put(key, values != null ? Collections.unmodifiableSet(new HashSet<>(values)) : null);
+        }
+
+        @Override
+        public PreferenceStore.Editor putInt(String key, int value) {
+            return put(key, value);
+        }
+
+        @Override
+        public PreferenceStore.Editor putLong(String key, long value) {
+            return put(key, value);
+        }
+
+        @Override
+        public PreferenceStore.Editor putFloat(String key, float value) {
+            return put(key, value);
+        }
+
+        @Override
+        public PreferenceStore.Editor putBoolean(String key, boolean value) {
+            return put(key, value);
+        }
+
+        @Override
+        public PreferenceStore.Editor remove(String key) {
+            return put(key, REMOVED);
+        }
+
+        @Override
+        public PreferenceStore.Editor clear() {
+            if (!mIsClear) {
+                mIsClear = true;
+                mWriteCount++;
+            }
+            return this;
+        }
+
+        @Override
+        public void apply() {
+            if (merge(mIsClear, mChanges, mWriteCount)) {
+                flush();
+            }
+        }
+
+        @Override
+        public boolean commit() {
+            // flush lock is held since the merge, so that the batch cannot be taken by a flush which only applies it
+            synchronized (mFlushLock) {
+                merge(mIsClear, mChanges, mWriteCount);
+                return flush(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.armdroid.smartpreferences;
+
+/**
+ * Counters of writes buffered by {@link PreferenceRepository} according to its {@link FlushPolicy}, obtained with
+ * {@link PreferenceRepository#getWriteStats()}. Each put, remove and clear counts as one write.
+ */
+public final class WriteStats {
+
+    private final long mWriteCount;
+    private final long mCoalescedWriteCount;
+    private final long mFlushCount;
+    private final int mPendingWriteCount;
+
+    WriteStats(long writeCount, long coalescedWriteCount, long flushCount, int pendingWriteCount) {
+        mWriteCount = writeCount;
+        mCoalescedWriteCount = coalescedWriteCount;
+        mFlushCount = flushCount;
+        mPendingWriteCount = pendingWriteCount;
+    }
+
+    /**
+     * @return Number of writes added to the buffer.
+     */
+    public long getWriteCount() {
+        return mWriteCount;
+    }
+
+    /**
+     * @return Number of writes that were replaced by a later write of the same key, or discarded by a later clear,
+     * before they were written to {@link PreferenceStore}.
+     */
+    public long getCoalescedWriteCount() {
+        return mCoalescedWriteCount;
+    }
+
+    /**
+     * @return Number of batches written to {@link PreferenceStore}.
+     */
+    public long getFlushCount() {
+        return mFlushCount;
+    }
+
+    /**
+     * @return Number of writes which are in the buffer now.
+     */
+    public int getPendingWriteCount() {
+        return mPendingWriteCount;
+    }
+
+    @Override
+    public String toString() {
+        return "WriteStats{writes=" + mWriteCount
+                + ", coalesced=" + mCoalescedWriteCount
+                + ", flushes=" + mFlushCount
+                + ", pending=" + mPendingWriteCount + '}';
+    }
+}
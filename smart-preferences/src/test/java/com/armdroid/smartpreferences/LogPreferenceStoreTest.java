@@ -0,0 +1,163 @@
+package com.armdroid.smartpreferences;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class LogPreferenceStoreTest {
+
+    private static final Executor DIRECT_EXECUTOR = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void replayDropsTornLastFrame() throws IOException {
+        File directory = mFolder.getRoot();
+        LogPreferenceStore store = open(directory, 4096);
+        assertTrue(store.edit().putInt("a", 1).putString("b", "first").commit());
+        assertTrue(store.edit().putString("b", "second").commit());
+        long validSize = store.getLogSize();
+        store.close();
+
+        byte[] frame = PreferenceRecordCodec.encodeFrame(false, Collections.singletonMap("b", "torn"));
+        append(new File(directory, "p.log"), frame, frame.length - 1);
+
+        store = open(directory, 4096);
+        assertEquals(1, store.getInt("a", 0));
+        assertEquals("second", store.getString("b", null));
+        assertEquals(validSize, store.getLogSize());
+
+        // frames appended after the torn one are replayed as well
+        assertTrue(store.edit().putInt("c", 3).commit());
+        store.close();
+        store = open(directory, 4096);
+        assertEquals("second", store.getString("b", null));
+        assertEquals(3, store.getInt("c", 0));
+        store.close();
+    }
+
+    @Test
+    public void replayStopsAtCorruptedFrame() throws IOException {
+        byte[] first = PreferenceRecordCodec.encodeFrame(false, Collections.singletonMap("a", 1));
+        byte[] second = PreferenceRecordCodec.encodeFrame(false, Collections.singletonMap("a", 2));
+        second[second.length - 1] ^= 1;
+        File file = mFolder.newFile("frames");
+        append(file, first, first.length);
+        append(file, second, second.length);
+
+        Map<String, Object> values = new HashMap<>();
+        assertEquals(first.length, PreferenceRecordCodec.decodeFile(file, values));
+        assertEquals(Collections.<String, Object>singletonMap("a", 1), values);
+    }
+
+    @Test
+    public void openFinishesCompactionOfOldLog() throws IOException {
+        File directory = mFolder.getRoot();
+        Map<String, Object> snapshot = new HashMap<>();
+        snapshot.put("a", 1);
+        snapshot.put("b", 1);
+        PreferenceRecordCodec.encodeFile(new File(directory, "p.snapshot"), snapshot);
+        byte[] oldFrame = PreferenceRecordCodec.encodeFrame(false, Collections.singletonMap("b", 2));
+        append(new File(directory, "p.log.old"), oldFrame, oldFrame.length);
+        byte[] frame = PreferenceRecordCodec.encodeFrame(false, Collections.singletonMap("c", 3));
+        append(new File(directory, "p.log"), frame, frame.length);
+
+        LogPreferenceStore store = open(directory, 4096);
+        assertEquals(1, store.getInt("a", 0));
+        assertEquals(2, store.getInt("b", 0));
+        assertEquals(3, store.getInt("c", 0));
+        assertFalse(new File(directory, "p.log.old").exists());
+        assertEquals(0, store.getLogSize());
+        store.close();
+
+        Map<String, Object> values = new HashMap<>();
+        PreferenceRecordCodec.decodeFile(new File(directory, "p.snapshot"), values);
+        assertEquals(3, values.size());
+        assertEquals(2, values.get("b"));
+    }
+
+    @Test
+    public void failedSnapshotIsRetried() throws IOException {
+        File directory = mFolder.getRoot();
+        LogPreferenceStore store = open(directory, 200);
+        // snapshot cannot replace a non-empty directory
+        File snapshotBlocker = new File(directory, "p.snapshot");
+        assertTrue(new File(snapshotBlocker, "blocker").mkdirs());
+
+        File oldLog = new File(directory, "p.log.old");
+        int value = 0;
+        while (!oldLog.exists()) {
+            assertTrue(store.edit().putInt("k" + value % 5, value++).commit());
+        }
+        // compaction failed after the log was set aside, writes go on to the new log
+        assertTrue(store.edit().putInt("k" + value % 5, value++).commit());
+        assertTrue(oldLog.exists());
+
+        assertTrue(new File(snapshotBlocker, "blocker").delete());
+        assertTrue(snapshotBlocker.delete());
+        for (int i = 0; i < 50 && oldLog.exists(); i++) {
+            assertTrue(store.edit().putInt("k" + value % 5, value++).commit());
+        }
+        assertFalse(oldLog.exists());
+        assertTrue(new File(directory, "p.snapshot").isFile());
+        int last = value - 1;
+        store.close();
+
+        store = open(directory, 200);
+        for (int i = last - 4; i <= last; i++) {
+            assertEquals(i, store.getInt("k" + i % 5, -1));
+        }
+        store.close();
+    }
+
+    @Test
+    public void commitFailsWhenSyncFails() throws IOException {
+        File devNull = new File("/dev/null");
+        assumeTrue(devNull.exists());
+        File directory = mFolder.getRoot();
+        // writes to /dev/null succeed, but it cannot be synced
+        try {
+            Files.createSymbolicLink(new File(directory, "p.log").toPath(), devNull.toPath());
+        } catch (IOException | UnsupportedOperationException e) {
+            assumeTrue(false);
+        }
+
+        LogPreferenceStore store = open(directory, 4096);
+        assertFalse(store.edit().putInt("a", 1).commit());
+        // change is still applied in memory, only its durability is not guaranteed
+        assertEquals(1, store.getInt("a", 0));
+    }
+
+    private static LogPreferenceStore open(File directory, long compactionThreshold) throws IOException {
+        return LogPreferenceStore.open(directory, "p", compactionThreshold, DIRECT_EXECUTOR);
+    }
+
+    private static void append(File file, byte[] bytes, int length) throws IOException {
+        FileOutputStream out = new FileOutputStream(file, true);
+        try {
+            out.write(bytes, 0, length);
+        } finally {
+            out.close();
+        }
+    }
+}
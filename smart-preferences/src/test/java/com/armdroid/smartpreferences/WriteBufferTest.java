@@ -0,0 +1,185 @@
+package com.armdroid.smartpreferences;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WriteBufferTest {
+
+    private RecordingStore mStore;
+    private PreferenceRepository mRepository;
+
+    @Before
+    public void setUp() {
+        mStore = new RecordingStore();
+        mRepository = new PreferenceRepository();
+        mRepository.setPreferenceStore(mStore);
+    }
+
+    @Test
+    public void readsSeeBufferedWrites() {
+        mStore.edit().putInt("stored", 1).putString("removed", "x").commit();
+        mRepository.setFlushPolicy(FlushPolicy.count(100));
+
+        mRepository.edit().putInt("a", 2).remove("removed").apply();
+        assertFalse(mStore.contains("a"));
+        assertEquals(2, mRepository.getInt("a", 0));
+        assertNull(mRepository.getString("removed", null));
+        assertFalse(mRepository.contains("removed"));
+        assertEquals(1, mRepository.getInt("stored", 0));
+        Map<String, ?> all = mRepository.getAll();
+        assertEquals(2, all.size());
+        assertEquals(2, all.get("a"));
+
+        mRepository.edit().clear().putInt("b", 3).apply();
+        assertFalse(mRepository.contains("stored"));
+        assertEquals(3, mRepository.getInt("b", 0));
+        assertEquals(1, mStore.mBatches.size());
+
+        mRepository.flush();
+        assertEquals(2, mStore.mBatches.size());
+        assertEquals(1, mStore.getAll().size());
+        assertEquals(3, mStore.getInt("b", 0));
+    }
+
+    @Test
+    public void coalescedWritesAreCounted() {
+        mRepository.setFlushPolicy(FlushPolicy.count(100));
+
+        // second write of "a" replaces the first one within the batch
+        mRepository.edit().putInt("a", 1).putInt("a", 2).putInt("b", 1).apply();
+        // replaces buffered write of "a"
+        mRepository.edit().putInt("a", 3).apply();
+        WriteStats stats = mRepository.getWriteStats();
+        assertEquals(4, stats.getWriteCount());
+        assertEquals(2, stats.getCoalescedWriteCount());
+        assertEquals(4, stats.getPendingWriteCount());
+        assertEquals(0, stats.getFlushCount());
+
+        // discards both buffered writes
+        mRepository.edit().clear().apply();
+        stats = mRepository.getWriteStats();
+        assertEquals(5, stats.getWriteCount());
+        assertEquals(4, stats.getCoalescedWriteCount());
+
+        mRepository.flush();
+        stats = mRepository.getWriteStats();
+        assertEquals(0, stats.getPendingWriteCount());
+        assertEquals(1, stats.getFlushCount());
+        assertEquals(1, mStore.mBatches.size());
+    }
+
+    @Test
+    public void bufferIsFlushedOnceItHoldsMaxPendingWrites() {
+        mRepository.setFlushPolicy(FlushPolicy.count(3));
+
+        mRepository.edit().putInt("a", 1).apply();
+        mRepository.edit().putInt("b", 1).apply();
+        assertEquals(0, mStore.mBatches.size());
+        mRepository.edit().putInt("a", 2).apply();
+
+        assertEquals(1, mStore.mBatches.size());
+        assertEquals(2, mStore.mBatches.get(0).size());
+        assertEquals(2, mStore.getInt("a", 0));
+        assertEquals(0, mRepository.getWriteStats().getPendingWriteCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void windowWithoutDelayIsRejected() {
+        FlushPolicy.window(0);
+    }
+
+    @Test
+    public void commitPersistsBufferedWritesWithItsBatch() {
+        mRepository.setFlushPolicy(FlushPolicy.count(100));
+
+        mRepository.edit().putInt("applied", 1).apply();
+        assertTrue(mRepository.edit().putInt("committed", 1).commit());
+
+        assertEquals(1, mStore.mBatches.size());
+        assertTrue(mStore.mPersistedKeys.contains("applied"));
+        assertTrue(mStore.mPersistedKeys.contains("committed"));
+
+        mStore.mIsPersistFailing = true;
+        assertFalse(mRepository.edit().putInt("committed", 2).commit());
+    }
+
+    @Test
+    public void commitWaitsForItsOwnBatch() throws Exception {
+        mRepository.setFlushPolicy(FlushPolicy.count(3));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                final int threadIndex = thread;
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() {
+                        for (int i = 0; i < 500; i++) {
+                            if (i % 2 == 0) {
+                                // applied writes make concurrent flushes take batches of other threads
+                                mRepository.edit().putInt("applied" + threadIndex + "_" + i, i).apply();
+                                continue;
+                            }
+                            String key = "committed" + threadIndex + "_" + i;
+                            if (!mRepository.edit().putInt(key, i).commit()) {
+                                return "commit of " + key + " failed";
+                            }
+                            if (!mStore.mPersistedKeys.contains(key)) {
+                                return "commit of " + key + " returned before its batch was persisted";
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<String> result : results) {
+                assertNull(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Records batches written to it and keys of batches which were committed.
+     */
+    private static class RecordingStore extends InMemoryPreferenceStore {
+
+        final List<Set<String>> mBatches = new ArrayList<>();
+        final Set<String> mPersistedKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        volatile boolean mIsPersistFailing;
+
+        @Override
+        protected synchronized long onChangesApplied(boolean clear, Map<String, Object> changes) {
+            Set<String> batch = new HashSet<>(changes.keySet());
+            mBatches.add(batch);
+            return mBatches.size();
+        }
+
+        @Override
+        protected synchronized boolean awaitPersisted(long token) {
+            if (mIsPersistFailing) {
+                return false;
+            }
+            mPersistedKeys.addAll(mBatches.get((int) token - 1));
+            return true;
+        }
+    }
+}